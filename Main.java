@@ -1,142 +1,186 @@
-import data_structures.HashTable;
+import actions.Simulation;
+import data_structures.IntHashMap;
+import file_io.MapLoader;
+import file_io.MapSnapshot;
+import file_io.TraceSink;
+import metrics.Metrics;
+import models.Graph;
 import models.Node;
+import pathfinding.CachedSearch;
+import pathfinding.JumpPointSearch;
+import pathfinding.UniformGrid;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
-
-import static actions.Actions.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This program processes nodes, edges, and objectives input files to create a map representation,
  * calculates optimal paths, handles obstacles, and performs the wizard's tasks.
  */
 public class Main {
-    public static void main(String[] args) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(args[3]));
-
-        File nodes = new File(args[0]);
-        File edges = new File(args[1]);
-        File objectives = new File(args[2]);
-
+    private static Node[][] land; // The grid of nodes
+    private static Graph graph; // The compressed graph of the land
+    private static IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType; // Nodes grouped by type
 
-        Scanner nodesFile = new Scanner(nodes);
-
-        Node[][] land = new Node[0][0];
-        HashTable<Integer, ArrayList<Node>> nodesWithTwoOrMoreType = new HashTable<>();
+    public static void main(String[] args) throws IOException {
+        if (args[0].equals("compile")) {
+            // Compile mode: parse the nodes and edges files once and store them as a binary snapshot.
+            MapLoader mapLoader = new MapLoader();
+            mapLoader.loadNodes(new File(args[1]));
+            Graph graph = mapLoader.loadEdges(new File(args[2]));
+            MapSnapshot.write(new File(args[3]), graph, mapLoader.getNodesWithTwoOrMoreType());
+            return;
+        }
 
-        // Process the nodes file to create the land matrix.
-        while (nodesFile.hasNextLine()) {
-            String line = nodesFile.nextLine();
-            String[] lineParts = line.split(" ");
+        if (args[0].equals("batch")) {
+            // Batch mode: load the map once (a snapshot, or nodes and edges files), then run every
+            // objectives file listed in the jobs file concurrently, each against its own view of the map.
+            loadMap(args.length == 3 ? new String[]{args[1]} : new String[]{args[1], args[2]});
+            runBatch(new File(args[args.length - 1]));
+            return;
+        }
 
-            if (lineParts.length == 2) {
-                // First line specifies the size of the grid.
-                int xAxis = Integer.parseInt(lineParts[0]);
-                int yAxis = Integer.parseInt(lineParts[1]);
-                land = new Node[xAxis][yAxis];
-            } else {
-                // Remaining lines specify node properties.
-                int xCoordinate = Integer.parseInt(lineParts[0]);
-                int yCoordinate = Integer.parseInt(lineParts[1]);
-                Integer nodeType = Integer.parseInt(lineParts[2]);
-                Node node = new Node(xCoordinate, yCoordinate, nodeType);
-
-                // If node type >= 2, store it in the hashtable
-                // in order to adjust them efficiently after wizard's help.
-                if (nodeType > 1) {
-                    ArrayList<Node> nodesList = nodesWithTwoOrMoreType.getOrPut(nodeType);
-                    nodesList.add(node);
-                }
-                land[xCoordinate][yCoordinate] = node;
+        // Load a map compiled earlier (snapshot, objectives and output files) or parse the text files.
+        loadMap(args.length == 3 ? new String[]{args[0]} : new String[]{args[0], args[1]});
+        Simulation simulation = runSimulation(graph, new File(args[args.length - 2]), new File(args[args.length - 1]));
+
+        if (Boolean.getBoolean("wizard.stats")) {
+            // Report the search space so the effect of the heuristic can be compared.
+            System.err.printf("Nodes expanded by the planner: %d%n", simulation.getPlanner().getExpandedCount());
+            System.err.printf("Nodes settled while pricing options: %d%n", simulation.getEngine().getSettledCount());
+            if (simulation.getEngine() instanceof JumpPointSearch) {
+                UniformGrid grid = ((JumpPointSearch) simulation.getEngine()).getGrid();
+                System.err.printf("Uniform %d-connected grid detected%n", grid.isDiagonal() ? 8 : 4);
+            }
+            if (simulation.getEngine() instanceof CachedSearch) {
+                CachedSearch cache = (CachedSearch) simulation.getEngine();
+                System.err.printf("Tree cache hits: %d, misses: %d, invalidations: %d%n", cache.getHitCount(),
+                        cache.getMissCount(), cache.getInvalidationCount());
             }
         }
 
-        // Process the edges file to establish connections between nodes.
-        Scanner edgesFile = new Scanner(edges);
-        while (edgesFile.hasNextLine()) {
-            String line = edgesFile.nextLine();
-            String[] lineParts = line.split(" ");
-            double travelTime = Double.parseDouble(lineParts[1]);
-            String[] leftPart = lineParts[0].split(",");
-
-            // Extract coordinates for the two nodes.
-            String[] firstNodeCoordinates = leftPart[0].split("-");
-            Node node1 = land[Integer.parseInt(firstNodeCoordinates[0])][Integer.parseInt(firstNodeCoordinates[1])];
+        if (Metrics.ENABLED) {
+            // Break the run down by search, discovery and objective, enabled with -Dwizard.metrics=true.
+            Metrics.printSummary(System.err);
+        }
+    }
 
-            String[] secondNodeCoordinates = leftPart[1].split("-");
-            Node node2 = land[Integer.parseInt(secondNodeCoordinates[0])][Integer.parseInt(secondNodeCoordinates[1])];
+    /**
+     * Loads the map from a snapshot, or from a nodes file and an edges file.
+     *
+     * @param mapFiles the snapshot, or the nodes and edges files
+     * @throws IOException if a file cannot be read
+     */
+    private static void loadMap(String[] mapFiles) throws IOException {
+        if (mapFiles.length == 1) {
+            // Load a map compiled earlier.
+            MapSnapshot snapshot = MapSnapshot.read(new File(mapFiles[0]));
+            land = snapshot.getLand();
+            graph = snapshot.getGraph();
+            nodesWithTwoOrMoreType = snapshot.getNodesWithTwoOrMoreType();
+        } else {
+            // Memory-map the nodes and edges files and parse them in parallel chunks.
+            MapLoader mapLoader = new MapLoader();
+            mapLoader.loadNodes(new File(mapFiles[0]));
+            land = mapLoader.getLand();
+            nodesWithTwoOrMoreType = mapLoader.getNodesWithTwoOrMoreType();
+
+            // Establish connections between nodes and compile them into the compressed adjacency used by the searches.
+            graph = mapLoader.loadEdges(new File(mapFiles[1]));
+        }
+    }
 
-            // Make travel time between nodes infinite if either one of them is of type 1 (impassable).
-            if (node1.getNodeType() == 1 || node2.getNodeType() == 1) {
-                travelTime = Double.MAX_VALUE;
+    /**
+     * Runs the simulations listed in a jobs file on a thread pool, sized by {@code -Dwizard.threads}
+     * and defaulting to the number of processors. Every line of the jobs file names an objectives
+     * file and the output file its actions are written to. The map is shared read-only, and every
+     * simulation changes only its own overlay from {@link Graph#newRun()}.
+     *
+     * @param jobs the jobs file
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void runBatch(File jobs) throws IOException {
+        int threads = Integer.getInteger("wizard.threads", Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(jobs.toPath())) {
+                if (line.isBlank()) continue;
+                String[] lineParts = line.trim().split("\\s+");
+                File objectives = new File(lineParts[0]);
+                File output = new File(lineParts[1]);
+                results.add(pool.submit(() -> {
+                    runSimulation(graph.newRun(), objectives, output);
+                    return null;
+                }));
+                lines.add(line);
             }
 
-            // Establish bidirectional edges between nodes.
-            node1.addEdge(node2, travelTime);
-            node2.addEdge(node1, travelTime);
+            // Wait for every simulation, reporting each failure with the job that caused it.
+            int failures = 0;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    failures++;
+                    System.err.println("Job failed: " + lines.get(i) + ": " + e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the simulations", e);
+                }
+            }
+            if (failures > 0) {
+                throw new IOException(failures + " of " + results.size() + " simulations failed");
+            }
+        } finally {
+            pool.shutdownNow();
         }
 
-        // Process the objectives file.
-        Scanner objectivesFile = new Scanner(objectives);
-
-        // First line: radius of the map's visibility.
-        String line = objectivesFile.nextLine();
-        int radius = Integer.parseInt(line);
-
-        // Second line: initial starting node coordinates.
-        line = objectivesFile.nextLine();
-        String[] lineParts = line.split(" ");
-        int xCoordinateOfInitialNode = Integer.parseInt(lineParts[0]);
-        int yCoordinateOfInitialNode = Integer.parseInt(lineParts[1]);
-
-        Node initialNode = land[xCoordinateOfInitialNode][yCoordinateOfInitialNode];
-
-        // Process each objective sequentially.
-        int objectiveCount = 1;
-        String[] options = null;
+        if (Metrics.ENABLED) {
+            Metrics.printSummary(System.err);
+        }
+    }
 
-        while (objectivesFile.hasNextLine()) {
+    /**
+     * Runs the wizard through one objectives file.
+     *
+     * @param graph      the view of the map the simulation changes
+     * @param objectives the objectives file
+     * @param output     the file the actions are written to
+     * @return the finished simulation
+     * @throws IOException if a file cannot be read or written
+     */
+    private static Simulation runSimulation(Graph graph, File objectives, File output) throws IOException {
+        // Log the actions as text, or as a compact trace for file_io.TraceDecoder with -Dwizard.trace=binary.
+        try (TraceSink trace = TraceSink.open(output, System.getProperty("wizard.trace", "text"));
+             Scanner objectivesFile = new Scanner(objectives)) {
+            // First line: radius of the map's visibility.
+            String line = objectivesFile.nextLine();
+            int radius = Integer.parseInt(line);
+
+            // Second line: initial starting node coordinates.
             line = objectivesFile.nextLine();
-            lineParts = line.split(" ");
-            int xCoordinateOfDestination = Integer.parseInt(lineParts[0]);
-            int yCoordinateOfDestination = Integer.parseInt(lineParts[1]);
-            Node destinationNode = land[xCoordinateOfDestination][yCoordinateOfDestination];
-
-            if (options != null) {
-                // Wizard offers a choice; process the options and update the map.
-                int choice = chooseForWizard(options, initialNode, destinationNode);
-                writer.write(String.format("Number %d is chosen!\n", choice));
-                updateAfterChoice(choice, nodesWithTwoOrMoreType);
-            }
-
-            if (lineParts.length > 2) {
-                // Update options if provided.
-                options = lineParts;
-            } else {
-                options = null;
-            }
+            String[] lineParts = line.split(" ");
+            int xCoordinateOfInitialNode = Integer.parseInt(lineParts[0]);
+            int yCoordinateOfInitialNode = Integer.parseInt(lineParts[1]);
 
-            Node lastNode = initialNode;
-            // Before calculating to route to the destination, first reveal nodes within radius.
-            getAdjacentNodesWithinRadius(initialNode, radius, land);
+            Node initialNode = land[xCoordinateOfInitialNode][yCoordinateOfInitialNode];
 
-            // Head to the destination node.
-            while (lastNode != destinationNode) {
-                lastNode = reachToObjective(lastNode, destinationNode, radius, land, objectiveCount, writer);
+            // Process each objective sequentially.
+            Simulation simulation = new Simulation(land, graph, nodesWithTwoOrMoreType, radius, initialNode, trace);
+            while (objectivesFile.hasNextLine()) {
+                simulation.runObjective(objectivesFile.nextLine());
             }
-
-            // Update initial node for the next objective.
-            initialNode = destinationNode;
-            objectiveCount++;
+            return simulation;
         }
-
-        writer.close();
-        edgesFile.close();
-        nodesFile.close();
-        objectivesFile.close();
     }
 }
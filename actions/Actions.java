@@ -1,11 +1,19 @@
 package actions;
 
-import data_structures.HashTable;
-import data_structures.MinHeap;
-import models.Edge;
+import data_structures.IntHashMap;
+import data_structures.IntList;
+import data_structures.LongIntHashMap;
+import data_structures.ObstacleIndex;
+import data_structures.IndexedMinHeap;
+import data_structures.LazyMinHeap;
+import data_structures.SearchContext;
+import file_io.TraceSink;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
 import models.Node;
-import models.NodeDistance;
-import java.io.BufferedWriter;
+import pathfinding.RoutePlanner;
+import pathfinding.SearchEngine;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -17,164 +25,268 @@ public class Actions {
 
     /**
      * Finds the shortest path between the initial node and the destination node using Dijkstra's algorithm.
+     * Nodes at equal distances are settled in the order of {@link LazyMinHeap}, so among routes of equal
+     * cost the wizard always takes the same one.
      *
+     * @param graph           the compressed adjacency of the land
      * @param initialNode     the starting node
      * @param destinationNode the destination node
      * @return a list of nodes representing the shortest path, or null if no path exists
      */
-    public static ArrayList<Node> findShortestPath(Node initialNode, Node destinationNode) {
-        MinHeap<NodeDistance> minHeap = new MinHeap<>(100); // Priority queue for storing the shortest distances
-        HashTable<Node, Double> distances = new HashTable<>(); // Maps nodes to their shortest distances
-        HashTable<Node, Node> previous = new HashTable<>(); // Maps nodes to their previous nodes in the path
-        HashTable<Node, Integer> visited = new HashTable<>(); // Tracks visited nodes
-
-        distances.put(initialNode, 0.0); // Distance to the initial node is 0
-        minHeap.insert(new NodeDistance(initialNode, 0.0));
-
-        while (!minHeap.isEmpty()) {
-            NodeDistance currentNodeDistance = minHeap.getMin();
-            Node currentNode = currentNodeDistance.getNode();
-
-            if (visited.containsKey(currentNode)) continue; // Skip already visited nodes
-            visited.put(currentNode, currentNode.getNodeType());
-
-            if (currentNode.equals(destinationNode)) {
-                // Backtrack to construct the path
-                ArrayList<Node> path = new ArrayList<>();
-                Node current = destinationNode;
-
-                while (current != null) {
-                    path.add(current); // Insert nodes at the beginning
-                    current = previous.get(current);
+    public static ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        SearchContext context = SearchContext.get(graph.getNodeCount()); // Reused distances, predecessors and heap
+        LazyMinHeap minHeap = context.getRouteHeap(); // Priority queue for storing the shortest distances
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int source = graph.getNodeId(initialNode);
+        int destination = graph.getNodeId(destinationNode);
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = minHeap.getPushCount(); // Heap counters before the search
+        long pops = minHeap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        context.setDistance(source, 0.0, -1); // Distance to the initial node is 0
+        minHeap.insert(source, 0.0);
+
+        try {
+            while (!minHeap.isEmpty()) {
+                int currentNode = minHeap.removeMin();
+                if (context.isSettled(currentNode)) continue; // Skip the stale entries of settled nodes
+                context.settle(currentNode);
+
+                if (currentNode == destination) {
+                    // Backtrack to construct the path
+                    ArrayList<Node> path = new ArrayList<>();
+                    int current = destination;
+
+                    while (current != -1) {
+                        path.add(graph.getNode(current)); // Insert nodes at the beginning
+                        current = context.getPrevious(current);
+                    }
+                    return path;
                 }
-                return path;
-            }
 
-            // Evaluate all neighbors of the current node
-            for (Edge edge : currentNode.getEdges()) {
-                Node neighbor = edge.getDestinationNode();
-                double newDistance = distances.get(currentNode) + edge.getTravelTime();
+                // Evaluate all neighbors of the current node
+                double currentDistance = context.getDistance(currentNode);
+                if (Metrics.ENABLED) relaxations += offsets[currentNode + 1] - offsets[currentNode];
+                for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    double newDistance = currentDistance + graph.getTravelTime(edge);
 
-                if (newDistance < distances.getOrDefault(neighbor, Double.MAX_VALUE)) {
-                    distances.put(neighbor, newDistance); // Update distance
-                    previous.put(neighbor, currentNode); // Update previous node
-                    minHeap.insert(new NodeDistance(neighbor, newDistance));
+                    if (newDistance < context.getDistance(neighbor)) {
+                        context.setDistance(neighbor, newDistance, currentNode); // Update distance and previous node
+                        minHeap.insert(neighbor, newDistance); // The old entry goes stale
+                    }
                 }
             }
+            return null; // No path found
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.DIJKSTRA, context.getSettledCount(), relaxations,
+                        minHeap.getPushCount() - pushes, minHeap.getPopCount() - pops);
+            }
         }
-        return null; // No path found
     }
 
     /**
      * Finds the shortest path between the initial node and destination node, treating
      * nodes of the specified type as always passable regardless of their current state.
      *
+     * @param graph           the compressed adjacency of the land
      * @param initialNode     the starting node
      * @param destinationNode the destination node
      * @param nodeType        the type of nodes to consider for traversal
      * @return the shortest path distance, or 0.0 if no path exists
      */
-    public static double findShortestPath(Node initialNode, Node destinationNode, int nodeType) {
-        MinHeap<NodeDistance> minHeap = new MinHeap<>(100);
-        HashTable<Node, Double> distances = new HashTable<>();
-        HashTable<Node, Node> previous = new HashTable<>();
-        HashTable<Node, Integer> visited = new HashTable<>();
+    public static double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        SearchContext context = SearchContext.get(graph.getNodeCount());
+        IndexedMinHeap minHeap = context.getHeap();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int source = graph.getNodeId(initialNode);
+        int destination = graph.getNodeId(destinationNode);
 
-        distances.put(initialNode, 0.0);
-        minHeap.insert(new NodeDistance(initialNode, 0.0));
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = minHeap.getPushCount(); // Heap counters before the search
+        long pops = minHeap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
 
-        while (!minHeap.isEmpty()) {
-            NodeDistance currentNodeDistance = minHeap.getMin();
-            Node currentNode = currentNodeDistance.getNode();
+        context.setDistance(source, 0.0, -1);
+        minHeap.insert(source, 0.0);
 
-            if (visited.containsKey(currentNode)) continue;
-            visited.put(currentNode, currentNode.getNodeType());
+        try {
+            while (!minHeap.isEmpty()) {
+                int currentNode = minHeap.removeMin();
+                context.settle(currentNode);
 
-            if (currentNode.equals(destinationNode)) {
-                return distances.get(currentNode);
-            }
+                if (currentNode == destination) {
+                    return context.getDistance(currentNode);
+                }
 
-            for (Edge edge : currentNode.getEdges()) {
-                Node neighbor = edge.getDestinationNode();
-                double newDistance = distances.get(currentNode) + edge.getTravelTime(nodeType);
+                double currentDistance = context.getDistance(currentNode);
+                if (Metrics.ENABLED) relaxations += offsets[currentNode + 1] - offsets[currentNode];
+                for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    double newDistance = currentDistance + graph.getTravelTime(edge, nodeType);
 
-                if (newDistance < distances.getOrDefault(neighbor, Double.MAX_VALUE)) {
-                    distances.put(neighbor, newDistance);
-                    previous.put(neighbor, currentNode);
-                    minHeap.insert(new NodeDistance(neighbor, newDistance));
+                    if (newDistance < context.getDistance(neighbor)) {
+                        context.setDistance(neighbor, newDistance, currentNode);
+                        minHeap.insertOrDecrease(neighbor, newDistance);
+                    }
                 }
             }
+            return 0.0;
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.DIJKSTRA, context.getSettledCount(), relaxations,
+                        minHeap.getPushCount() - pushes, minHeap.getPopCount() - pops);
+            }
         }
-        return 0.0;
     }
 
     /**
      * Discovers nodes within a given radius of a center node and updates their visibility.
+     * Only the undiscovered hidden obstacles in the buckets around the center are examined.
      *
+     * @param graph      the compressed adjacency of the land
      * @param centerNode the center node
      * @param radius     the radius within which nodes should be discovered
-     * @param grid       the grid of nodes
-     * @return a hash table of discovered nodes mapped to their types
+     * @return the discovered nodes, keyed by their packed coordinates, mapped to their types
+     */
+    public static LongIntHashMap getAdjacentNodesWithinRadius(Graph graph, Node centerNode, double radius) {
+        return toVisibleNodes(graph, discoverObstacles(graph, DiskStencil.of(graph, radius), null, centerNode,
+                new IntList()));
+    }
+
+    /**
+     * Discovers the nodes that enter the visibility disk when its center moves from the previous
+     * center node to the new one. Obstacles that were already within the radius of the previous
+     * center were discovered when the wizard stood there, so they are skipped.
+     *
+     * @param graph          the compressed adjacency of the land
+     * @param previousCenter the center node of the previous sweep
+     * @param centerNode     the new center node
+     * @param radius         the radius within which nodes should be discovered
+     * @return the discovered nodes, keyed by their packed coordinates, mapped to their types
+     */
+    public static LongIntHashMap getAdjacentNodesWithinRadius(Graph graph, Node previousCenter,
+                                                              Node centerNode, double radius) {
+        return toVisibleNodes(graph, discoverObstacles(graph, DiskStencil.of(graph, radius), previousCenter,
+                centerNode, new IntList()));
+    }
+
+    /**
+     * Collects discovered node ids into a map from packed coordinates to node types.
+     *
+     * @param graph      the compressed adjacency of the land
+     * @param discovered the ids of the discovered nodes
+     * @return the discovered nodes, keyed by their packed coordinates, mapped to their types
      */
-    public static HashTable<Node, Integer> getAdjacentNodesWithinRadius(Node centerNode, double radius, Node[][] grid) {
-        HashTable<Node, Integer> visibleNodes = new HashTable<>();
+    private static LongIntHashMap toVisibleNodes(Graph graph, IntList discovered) {
+        LongIntHashMap visibleNodes = new LongIntHashMap(discovered.size());
+        for (int i = 0; i < discovered.size(); i++) {
+            Node node = graph.getNode(discovered.get(i));
+            visibleNodes.put(LongIntHashMap.pack(node.getxCoordinate(), node.getyCoordinate()),
+                    graph.getNodeType(discovered.get(i)));
+        }
+        return visibleNodes;
+    }
+
+    /**
+     * Discovers the undiscovered hidden obstacles inside the disk around the center node, skipping
+     * those that were already inside the disk around the previous center.
+     *
+     * @param graph          the compressed adjacency of the land
+     * @param stencil        the disk of the radius within which nodes should be discovered
+     * @param previousCenter the center node of the previous sweep, or {@code null} for a full sweep
+     * @param centerNode     the center node
+     * @param discovered     the list the ids of the discovered nodes are appended to
+     * @return the given list of discovered node ids
+     */
+    private static IntList discoverObstacles(Graph graph, DiskStencil stencil, Node previousCenter,
+                                             Node centerNode, IntList discovered) {
+        ObstacleIndex hiddenObstacles = graph.getHiddenObstacles();
+        int bucketSize = hiddenObstacles.getBucketSize();
         int centerX = centerNode.getxCoordinate();
         int centerY = centerNode.getyCoordinate();
 
-        // Determine the boundaries of the search space
-        int minX = Math.max(0, (int) Math.floor(centerX - radius));
-        int maxX = Math.min(grid.length - 1, (int) Math.ceil(centerX + radius));
-        int minY = Math.max(0, (int) Math.floor(centerY - radius));
-        int maxY = Math.min(grid[0].length - 1, (int) Math.ceil(centerY + radius));
-
-        // Search within the determined boundaries
-        for (int i = minX; i <= maxX; i++) {
-            for (int j = minY; j <= maxY; j++) {
-                Node node = grid[i][j];
-                if (node != null) {
-                    double distance = Math.sqrt(Math.pow(node.getxCoordinate() - centerX, 2) +
-                            Math.pow(node.getyCoordinate() - centerY, 2));
-                    if (distance <= radius && node.getNodeType() > 1 && !node.isDiscovered()) {
-                        node.discoverNode();
-                        visibleNodes.put(node, node.getNodeType());
-                    }
+        // Determine the buckets overlapping the disk, clipped to the grid
+        int minBucketX = Math.max(0, centerX - stencil.getReach()) / bucketSize;
+        int maxBucketX = Math.min(graph.getWidth() - 1, centerX + stencil.getReach()) / bucketSize;
+        int minBucketY = Math.max(0, centerY - stencil.getReach()) / bucketSize;
+        int maxBucketY = Math.min(graph.getHeight() - 1, centerY + stencil.getReach()) / bucketSize;
+        long scanned = 0; // Candidates examined, counted only when metrics are enabled
+
+        for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+            for (int bucketY = minBucketY; bucketY <= maxBucketY; bucketY++) {
+                int bucket = hiddenObstacles.getBucket(bucketX, bucketY);
+                if (Metrics.ENABLED) scanned += hiddenObstacles.getBucketLength(bucket);
+                // Walk backwards, since discovering an obstacle moves the bucket's last id into its slot
+                for (int k = hiddenObstacles.getBucketLength(bucket) - 1; k >= 0; k--) {
+                    int id = hiddenObstacles.getBucketIds(bucket)[k];
+                    int x = graph.getxCoordinate(id);
+                    int y = graph.getyCoordinate(id);
+                    if (Math.abs(y - centerY) > stencil.getHalfWidth(x - centerX)) continue;
+                    if (previousCenter != null && Math.abs(y - previousCenter.getyCoordinate())
+                            <= stencil.getHalfWidth(x - previousCenter.getxCoordinate())) continue;
+
+                    graph.discoverNode(id);
+                    discovered.add(id);
                 }
             }
         }
+        if (Metrics.ENABLED) Metrics.recordDiscovery(scanned);
 
-        return visibleNodes;
+        return discovered;
     }
 
     /**
      * Attempts to move from the initial node to the destination node, revealing obstacles along the way.
+     * The initial node must already have been swept for obstacles. The route is planned by the given
+     * route planner, which must already target the destination node and is kept informed of
+     * every node discovered on the way.
      *
+     * @param graph           the compressed adjacency of the land
+     * @param planner         the route planner targeting the destination node
      * @param initialNode     the starting node
      * @param destinationNode the destination node
      * @param radius          the visibility radius
-     * @param land            the grid of nodes
      * @param objectiveCount  the objective number
-     * @param writer          the writer to log actions
+     * @param trace           the sink to log actions
      * @return the last reachable node in the path
      * @throws IOException if an error occurs while writing to the output
      */
-    public static Node reachToObjective(Node initialNode, Node destinationNode, int radius,
-                                        Node[][] land, int objectiveCount, BufferedWriter writer) throws IOException {
-        ArrayList<Node> path = findShortestPath(initialNode, destinationNode);
+    public static Node reachToObjective(Graph graph, RoutePlanner planner, Node initialNode,
+                                        Node destinationNode, int radius, int objectiveCount,
+                                        TraceSink trace) throws IOException {
+        ArrayList<Node> path = planner.findShortestPath(initialNode);
+        IntList discovered = new IntList(); // Nodes discovered by the latest move
+        DiskStencil stencil = DiskStencil.of(graph, radius); // Cells within the radius of a position
 
         for (int i = path.size() - 2; i >= 0; i--) {
             Node node = path.get(i);
-            writer.write(String.format("Moving to %d-%d\n", node.getxCoordinate(), node.getyCoordinate()));
-            HashTable<Node, Integer> nodesInRadius = getAdjacentNodesWithinRadius(node, radius, land);
+            trace.moveTo(node.getxCoordinate(), node.getyCoordinate());
+            // The previous position was already swept, so only the cells entering the radius are checked
+            discovered.clear();
+            discoverObstacles(graph, stencil, path.get(i + 1), node, discovered);
+            planner.moveTo(node);
 
-            for (int j = i; j >= 0; j--) {
-                if (nodesInRadius.containsKey(path.get(j))) {
-                    writer.write("Path is impassable!\n");
-                    return node;
-                }
+            boolean blocked = false;
+            for (int k = 0; k < discovered.size(); k++) {
+                int id = discovered.get(k);
+                planner.discoverNode(id); // Repair the planner's estimates around the new obstacle
+                // The route positions still ahead, including the current one, are i down to 0
+                int routeIndex = planner.getRouteIndex(id);
+                blocked |= routeIndex >= 0 && routeIndex <= i;
+            }
+            if (blocked) {
+                trace.pathImpassable();
+                return node;
             }
 
             if (node.equals(destinationNode)) {
-                writer.write(String.format("Objective %s reached!\n", objectiveCount));
+                trace.objectiveReached(objectiveCount);
             }
         }
         return destinationNode;
@@ -182,21 +294,31 @@ public class Actions {
 
     /**
      * Determines the best choice offered by the wizard for making traversal easier.
+     * All options are priced by the engine at once, which may run them concurrently or in a single
+     * traversal. The cheapest option is then picked in option order, so ties resolve to the first
+     * best option exactly as a sequential loop would.
      *
+     * @param graph           the compressed adjacency of the land
+     * @param engine          the search engine used to price the options
      * @param options         the wizard's options as an array of strings
      * @param initialNode     the starting node
      * @param destinationNode the destination node
      * @return the best choice for traversal
      */
-    public static int chooseForWizard(String[] options, Node initialNode, Node destinationNode) {
+    public static int chooseForWizard(Graph graph, SearchEngine engine, String[] options, Node initialNode, Node destinationNode) {
+        int[] choices = new int[options.length - 2];
+        for (int i = 0; i < choices.length; i++) {
+            choices[i] = Integer.parseInt(options[i + 2]);
+        }
+        double[] pathDistances = engine.findShortestPaths(graph, initialNode, destinationNode, choices);
+
         int bestChoice = 0;
         double bestPathDistance = Double.MAX_VALUE;
 
-        for (int i = 2; i < options.length; i++) {
-            double pathDistance = findShortestPath(initialNode, destinationNode, Integer.parseInt(options[i]));
-            if (pathDistance < bestPathDistance) {
-                bestPathDistance = pathDistance;
-                bestChoice = Integer.parseInt(options[i]);
+        for (int i = 0; i < choices.length; i++) {
+            if (pathDistances[i] < bestPathDistance) {
+                bestPathDistance = pathDistances[i];
+                bestChoice = choices[i];
             }
         }
         return bestChoice;
@@ -205,16 +327,16 @@ public class Actions {
     /**
      * Updates the state of nodes after a wizard's choice is made.
      *
+     * @param graph                   the compressed adjacency of the land
      * @param choice                  the type of nodes to update
-     * @param nodesWithTwoOrMoreType a hash table of nodes grouped by type
+     * @param nodesWithTwoOrMoreType a hash map of nodes grouped by type
      */
-    public static void updateAfterChoice(Integer choice, HashTable<Integer, ArrayList<Node>> nodesWithTwoOrMoreType) {
-        if (nodesWithTwoOrMoreType.get(choice) != null) {
-            ArrayList<Node> nodesList = nodesWithTwoOrMoreType.get(choice);
+    public static void updateAfterChoice(Graph graph, int choice, IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType) {
+        ArrayList<Node> nodesList = nodesWithTwoOrMoreType.remove(choice);
+        if (nodesList != null) {
             for (Node node : nodesList) {
-                node.updateAfterChoice();
+                graph.updateAfterChoice(graph.getNodeId(node));
             }
-            nodesWithTwoOrMoreType.remove(choice);
         }
     }
 }
@@ -0,0 +1,64 @@
+package actions;
+
+import models.Graph;
+
+/**
+ * The integer offsets covered by a disk of a given radius, stored as the half width of every row.
+ * Row {@code dx} of the disk spans the offsets {@code -halfWidth(dx) .. halfWidth(dx)}, so visibility
+ * sweeps can walk the covered cells directly instead of testing every cell of the bounding box.
+ */
+class DiskStencil {
+    private final int reach; // The largest row offset inside the disk
+    private final int[] halfWidths; // Half width of each row, indexed by dx + reach
+
+    /**
+     * Builds the stencil of a disk, using the same distance test as the cell-by-cell sweep.
+     *
+     * @param radius the radius of the disk
+     */
+    private DiskStencil(double radius) {
+        this.reach = radius < 0 ? -1 : (int) Math.floor(radius);
+        this.halfWidths = new int[2 * reach + 1];
+        for (int dx = -reach; dx <= reach; dx++) {
+            int halfWidth = -1;
+            while (halfWidth < reach && Math.sqrt(Math.pow(dx, 2) + Math.pow(halfWidth + 1, 2)) <= radius) {
+                halfWidth++;
+            }
+            halfWidths[dx + reach] = halfWidth;
+        }
+    }
+
+    /**
+     * Retrieves the stencil of a disk with the given radius, building it the first time any view of the
+     * map asks for that radius, so that the simulations over several views of one map share it.
+     *
+     * @param graph  the compressed adjacency of the land
+     * @param radius the radius of the disk
+     * @return the stencil
+     */
+    static DiskStencil of(Graph graph, double radius) {
+        return graph.getDerived("disk-stencil/" + radius, map -> new DiskStencil(radius));
+    }
+
+    /**
+     * Retrieves the largest row offset inside the disk.
+     *
+     * @return the reach of the disk, or -1 if the disk is empty
+     */
+    int getReach() {
+        return reach;
+    }
+
+    /**
+     * Retrieves the half width of a row of the disk.
+     *
+     * @param dx the row offset from the center
+     * @return the largest column offset inside the disk on that row, or -1 if the row is outside the disk
+     */
+    int getHalfWidth(int dx) {
+        if (dx < -reach || dx > reach) {
+            return -1;
+        }
+        return halfWidths[dx + reach];
+    }
+}
@@ -0,0 +1,187 @@
+package actions;
+
+import data_structures.IntHashMap;
+import file_io.TraceSink;
+import metrics.Metrics;
+import metrics.ObjectiveEvent;
+import models.DistanceMetric;
+import models.Graph;
+import models.Node;
+import pathfinding.AStarSearch;
+import pathfinding.BidirectionalSearch;
+import pathfinding.CachedSearch;
+import pathfinding.ContractionHeuristic;
+import pathfinding.DeltaSteppingSearch;
+import pathfinding.DijkstraPlanner;
+import pathfinding.Heuristic;
+import pathfinding.HierarchicalPlanner;
+import pathfinding.IncrementalPlanner;
+import pathfinding.JumpPointSearch;
+import pathfinding.LandmarkHeuristic;
+import pathfinding.MultiOptionSearch;
+import pathfinding.RoutePlanner;
+import pathfinding.SearchEngine;
+import pathfinding.UniformGrid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static actions.Actions.*;
+
+/**
+ * Runs the wizard through the objectives of one objectives file, one line at a time.
+ * The search configuration is read from the system properties {@code wizard.heuristic},
+ * {@code wizard.landmarks}, {@code wizard.planner}, {@code wizard.cluster.size}, {@code wizard.engine},
+ * {@code wizard.cache.nodes}, {@code wizard.delta} and {@code wizard.parallel.threshold}. A simulation only
+ * changes its graph view and its own copy of the nodes grouped by type, so simulations over views
+ * from {@link Graph#newRun()} can run on separate threads.
+ */
+public class Simulation {
+    private final Node[][] land; // The grid of nodes
+    private final Graph graph; // The compressed graph of the land
+    private final IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType; // Nodes grouped by type not chosen yet
+    private final RoutePlanner planner; // Plans the routes to the objectives
+    private final SearchEngine engine; // Prices the wizard's options
+    private final TraceSink trace; // Receives the wizard's actions
+    private final int radius; // Radius of the map's visibility
+    private Node initialNode; // Current position of the wizard
+    private String[] options; // Options offered on the previous objective line, or null
+    private int objectiveCount = 1; // Number of the next objective
+
+    /**
+     * Constructs a simulation starting at the given node.
+     *
+     * @param land                   the grid of nodes
+     * @param graph                  the compressed graph of the land
+     * @param nodesWithTwoOrMoreType the nodes grouped by type, not modified
+     * @param radius                 the radius of the map's visibility
+     * @param initialNode            the wizard's starting node
+     * @param trace                  the sink to log actions
+     */
+    public Simulation(Node[][] land, Graph graph, IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType,
+                      int radius, Node initialNode, TraceSink trace) {
+        this.land = land;
+        this.graph = graph;
+        this.nodesWithTwoOrMoreType = new IntHashMap<>(nodesWithTwoOrMoreType);
+        this.radius = radius;
+        this.initialNode = initialNode;
+        this.trace = trace;
+
+        // Focus the searches towards their destination unless disabled with -Dwizard.heuristic=none.
+        String metricName = System.getProperty("wizard.heuristic", "octile");
+        DistanceMetric metric = metricName.equals("none") ? null : DistanceMetric.valueOf(metricName.toUpperCase());
+        // Tighten the estimate with -Dwizard.landmarks=k distance tables, shared by all simulations of the map.
+        int landmarkCount = Integer.getInteger("wizard.landmarks", 0);
+        Heuristic heuristic = landmarkCount > 0 ? LandmarkHeuristic.of(graph, metric, landmarkCount)
+                : new Heuristic(graph, metric);
+        // Planner of the routes, selected with -Dwizard.planner: a full Dijkstra search per route by default,
+        // D* Lite repairing its search after discoveries, or HPA* over tiles of -Dwizard.cluster.size cells for
+        // very large maps. Only the default keeps the choice among equal-cost routes of the action log.
+        switch (System.getProperty("wizard.planner", "dijkstra")) {
+            case "incremental":
+                this.planner = new IncrementalPlanner(graph, heuristic);
+                break;
+            case "hierarchical":
+                this.planner = new HierarchicalPlanner(graph, heuristic, Integer.getInteger("wizard.cluster.size", 32));
+                break;
+            default:
+                this.planner = new DijkstraPlanner(graph);
+        }
+
+        // Engine used to price the wizard's options, selected with -Dwizard.engine.
+        switch (System.getProperty("wizard.engine", "auto")) {
+            case "astar":
+                this.engine = new AStarSearch(heuristic);
+                break;
+            case "jump-point": {
+                UniformGrid grid = UniformGrid.of(graph);
+                this.engine = grid != null ? new JumpPointSearch(grid, heuristic) : new AStarSearch(heuristic);
+                break;
+            }
+            case "bidirectional":
+                this.engine = new BidirectionalSearch();
+                break;
+            case "multi-option":
+                this.engine = new MultiOptionSearch(heuristic);
+                break;
+            case "cached":
+                this.engine = new CachedSearch(Long.getLong("wizard.cache.nodes", 1L << 20));
+                break;
+            case "cch":
+                this.engine = new AStarSearch(new ContractionHeuristic(graph, metric));
+                break;
+            case "delta-stepping":
+                this.engine = new DeltaSteppingSearch(graph, heuristic,
+                        Double.parseDouble(System.getProperty("wizard.delta", "0")),
+                        Integer.getInteger("wizard.parallel.threshold", 1 << 18));
+                break;
+            default: {
+                // Jump point search on 4-connected uniform-cost grids, whose steps all add the same travel time
+                // and give the distances of the edge by edge searches to the last bit; A* on every other map
+                UniformGrid grid = UniformGrid.of(graph);
+                this.engine = grid != null && !grid.isDiagonal() ? new JumpPointSearch(grid, heuristic)
+                        : new AStarSearch(heuristic);
+            }
+        }
+    }
+
+    /**
+     * Processes one objective line: settles the options offered on the previous line, then moves
+     * the wizard to the destination, replanning whenever the path gets blocked.
+     *
+     * @param line the objective line, a destination optionally followed by the offered options
+     * @return the number of routes planned to reach the destination
+     * @throws IOException if an error occurs while writing to the output
+     */
+    public int runObjective(String line) throws IOException {
+        ObjectiveEvent event = Metrics.ENABLED ? Metrics.beginObjective() : null;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        String[] lineParts = line.split(" ");
+        int xCoordinateOfDestination = Integer.parseInt(lineParts[0]);
+        int yCoordinateOfDestination = Integer.parseInt(lineParts[1]);
+        Node destinationNode = land[xCoordinateOfDestination][yCoordinateOfDestination];
+
+        if (options != null) {
+            // Wizard offers a choice; process the options and update the map.
+            int choice = chooseForWizard(graph, engine, options, initialNode, destinationNode);
+            trace.choiceMade(choice);
+            updateAfterChoice(graph, choice, nodesWithTwoOrMoreType);
+        }
+
+        if (lineParts.length > 2) {
+            // Update options if provided.
+            options = lineParts;
+        } else {
+            options = null;
+        }
+
+        Node lastNode = initialNode;
+        // Before calculating to route to the destination, first reveal nodes within radius.
+        getAdjacentNodesWithinRadius(graph, initialNode, radius);
+
+        // Head to the destination node, replanning whenever the path gets blocked.
+        planner.setGoal(initialNode, destinationNode);
+        int planCount = 0;
+        while (lastNode != destinationNode) {
+            lastNode = reachToObjective(graph, planner, lastNode, destinationNode, radius, objectiveCount, trace);
+            planCount++;
+        }
+
+        if (Metrics.ENABLED) {
+            Metrics.endObjective(event, objectiveCount, System.nanoTime() - start, planCount);
+        }
+
+        // Update initial node for the next objective.
+        initialNode = destinationNode;
+        objectiveCount++;
+        return planCount;
+    }
+
+    public RoutePlanner getPlanner() {
+        return planner;
+    }
+
+    public SearchEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,260 @@
+package benchmarks;
+
+import data_structures.IntList;
+import models.Graph;
+import models.GraphBuilder;
+import models.Node;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic maps in the shape of the input files: a grid whose cells are
+ * linked to their right and lower neighbours, and optionally to their diagonal neighbours too, with
+ * a share of impassable cells and of hidden obstacles of types 2 and above. The same seed always produces the same map, both in memory
+ * and as nodes and edges files. Travel times are derived from a hash of the seed and the edge instead
+ * of being stored, so only one byte per cell is kept and grids of 10k x 10k cells fit in memory.
+ */
+public class MapGenerator {
+    private static final double IMPASSABLE_DENSITY = 0.04; // Share of type 1 cells
+    static final int HIDDEN_TYPES = 5; // Hidden obstacles get types 2 to HIDDEN_TYPES + 1
+
+    private final int width; // Number of columns of the grid
+    private final int height; // Number of rows of the grid
+    private final byte[] nodeTypes; // Type of each cell indexed by id
+    private final String weights; // Name of the travel time distribution
+    private final boolean diagonal; // Whether cells are also linked to their diagonal neighbours
+    private final long seed; // Seed the travel times are derived from
+
+    /**
+     * Generates a map.
+     *
+     * @param width          the number of columns of the grid
+     * @param height         the number of rows of the grid
+     * @param weights        the travel time distribution: {@code uniform} in [1, 10), {@code constant} 1,
+     *                       or {@code exponential} 1 plus an exponential variable of mean 2
+     * @param hiddenDensity  the share of cells holding a hidden obstacle
+     * @param seed           the random seed
+     */
+    public MapGenerator(int width, int height, String weights, double hiddenDensity, long seed) {
+        this(width, height, weights, hiddenDensity, false, seed);
+    }
+
+    /**
+     * Generates a map, optionally 8-connected. Diagonal edges take {@code sqrt(2)} times the travel time
+     * drawn for them, so that on a map of constant travel times they are exactly {@code Math.sqrt(2)}.
+     *
+     * @param width          the number of columns of the grid
+     * @param height         the number of rows of the grid
+     * @param weights        the travel time distribution, as for the 4-connected maps
+     * @param hiddenDensity  the share of cells holding a hidden obstacle
+     * @param diagonal       whether cells are also linked to their diagonal neighbours
+     * @param seed           the random seed
+     */
+    public MapGenerator(int width, int height, String weights, double hiddenDensity, boolean diagonal, long seed) {
+        this.width = width;
+        this.height = height;
+        this.nodeTypes = new byte[Math.multiplyExact(width, height)];
+        this.weights = weights;
+        this.diagonal = diagonal;
+        this.seed = seed;
+        weight(0, 0); // Reject an unknown distribution early
+
+        Random random = new Random(seed);
+        for (int id = 0; id < nodeTypes.length; id++) {
+            double draw = random.nextDouble();
+            if (draw < IMPASSABLE_DENSITY) {
+                nodeTypes[id] = 1;
+            } else if (draw < IMPASSABLE_DENSITY + hiddenDensity) {
+                nodeTypes[id] = (byte) (2 + random.nextInt(HIDDEN_TYPES));
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieves the generated type of a cell.
+     *
+     * @param xCoordinate the x-coordinate of the cell
+     * @param yCoordinate the y-coordinate of the cell
+     * @return the node type
+     */
+    public int getNodeType(int xCoordinate, int yCoordinate) {
+        return nodeTypes[xCoordinate * height + yCoordinate];
+    }
+
+    /**
+     * Picks a random cell of type 0, which is a valid position for the wizard.
+     *
+     * @param random the random source
+     * @return the x and y coordinates of the cell
+     */
+    public int[] randomFreeCell(Random random) {
+        while (true) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (getNodeType(x, y) == 0) {
+                return new int[]{x, y};
+            }
+        }
+    }
+
+    /**
+     * Finds the cells of type 0 connected to the given cell through cells of type 0. Those cells never
+     * turn into obstacles, so a route between any two of them always exists.
+     *
+     * @param xCoordinate the x-coordinate of the cell
+     * @param yCoordinate the y-coordinate of the cell
+     * @return the ids of the connected cells of type 0, marked in a bit set
+     */
+    public BitSet freeComponent(int xCoordinate, int yCoordinate) {
+        BitSet component = new BitSet(nodeTypes.length);
+        IntList queue = new IntList();
+        int start = xCoordinate * height + yCoordinate;
+        component.set(start);
+        queue.add(start);
+        for (int head = 0; head < queue.size(); head++) {
+            int id = queue.get(head);
+            int x = id / height;
+            int y = id % height;
+            if (x > 0) visit(component, queue, id - height);
+            if (x + 1 < width) visit(component, queue, id + height);
+            if (y > 0) visit(component, queue, id - 1);
+            if (y + 1 < height) visit(component, queue, id + 1);
+        }
+        return component;
+    }
+
+    /**
+     * Builds a fresh graph of the map with the same rules as loading its files.
+     *
+     * @return the compiled graph
+     */
+    public Graph build() {
+        GraphBuilder graphBuilder = new GraphBuilder(width, height);
+        for (int id = 0; id < nodeTypes.length; id++) {
+            graphBuilder.addNode(new Node(id / height, id % height, nodeTypes[id]));
+        }
+        for (int id = 0; id < nodeTypes.length; id++) {
+            int x = id / height;
+            int y = id % height;
+            if (x + 1 < width) addEdge(graphBuilder, id, id + height, weight(id, 0));
+            if (y + 1 < height) addEdge(graphBuilder, id, id + 1, weight(id, 1));
+            if (diagonal && x + 1 < width && y + 1 < height) addEdge(graphBuilder, id, id + height + 1, weight(id, 2));
+            if (diagonal && x + 1 < width && y > 0) addEdge(graphBuilder, id, id + height - 1, weight(id, 3));
+        }
+        return graphBuilder.build();
+    }
+
+    /**
+     * Writes the map as a nodes file and an edges file.
+     *
+     * @param nodes the nodes file to write
+     * @param edges the edges file to write
+     * @throws IOException if a file cannot be written
+     */
+    public void write(File nodes, File edges) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(nodes), 1 << 16)) {
+            writer.write(width + " " + height + "\n");
+            for (int id = 0; id < nodeTypes.length; id++) {
+                writer.write(id / height + " " + id % height + " " + nodeTypes[id] + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(edges), 1 << 16)) {
+            for (int id = 0; id < nodeTypes.length; id++) {
+                int x = id / height;
+                int y = id % height;
+                if (x + 1 < width) {
+                    writer.write(x + "-" + y + "," + (x + 1) + "-" + y + " " + weight(id, 0) + "\n");
+                }
+                if (y + 1 < height) {
+                    writer.write(x + "-" + y + "," + x + "-" + (y + 1) + " " + weight(id, 1) + "\n");
+                }
+                if (diagonal && x + 1 < width && y + 1 < height) {
+                    writer.write(x + "-" + y + "," + (x + 1) + "-" + (y + 1) + " " + weight(id, 2) + "\n");
+                }
+                if (diagonal && x + 1 < width && y > 0) {
+                    writer.write(x + "-" + y + "," + (x + 1) + "-" + (y - 1) + " " + weight(id, 3) + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a cell of type 0 to the component and the search queue unless it is already there.
+     *
+     * @param component the cells found so far
+     * @param queue     the cells whose neighbours are still to be visited
+     * @param id        the id of the cell
+     */
+    private void visit(BitSet component, IntList queue, int id) {
+        if (nodeTypes[id] == 0 && !component.get(id)) {
+            component.set(id);
+            queue.add(id);
+        }
+    }
+
+    /**
+     * Adds both directions of an edge, making it impassable if either end is of type 1.
+     *
+     * @param graphBuilder the builder collecting the edges
+     * @param id1          the id of one end
+     * @param id2          the id of the other end
+     * @param travelTime   the travel time of the edge
+     */
+    private void addEdge(GraphBuilder graphBuilder, int id1, int id2, double travelTime) {
+        if (nodeTypes[id1] == 1 || nodeTypes[id2] == 1) {
+            travelTime = Double.MAX_VALUE;
+        }
+        graphBuilder.addEdge(id1, id2, travelTime);
+        graphBuilder.addEdge(id2, id1, travelTime);
+    }
+
+    /**
+     * Computes the travel time of the edge leaving a cell to the right, downwards or diagonally,
+     * rounded to six decimals so that it survives the text files unchanged.
+     *
+     * @param id        the id of the cell the edge leaves
+     * @param direction 0 for the edge to (x + 1, y), 1 for the edge to (x, y + 1), 2 for the edge to
+     *                  (x + 1, y + 1) and 3 for the edge to (x + 1, y - 1)
+     * @return the travel time
+     */
+    private double weight(int id, int direction) {
+        // SplitMix64 finalizer over the seed and the edge, giving a uniform draw in [0, 1); the diagonal
+        // edges draw from the complement of the seed, which keeps the draws of the straight edges unchanged
+        long hash = (direction < 2 ? seed : ~seed) + (2L * id + (direction & 1) + 1) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        double draw = (hash >>> 11) * 0x1.0p-53;
+
+        double weight;
+        switch (weights) {
+            case "constant":
+                return direction < 2 ? 1.0 : Math.sqrt(2);
+            case "uniform":
+                weight = 1 + 9 * draw;
+                break;
+            case "exponential":
+                weight = 1 - 2 * Math.log(1 - draw);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown weight distribution: " + weights);
+        }
+        if (direction >= 2) {
+            weight *= Math.sqrt(2);
+        }
+        return Math.round(weight * 1e6) / 1e6;
+    }
+}
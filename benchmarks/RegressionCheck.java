@@ -0,0 +1,283 @@
+package benchmarks;
+
+import actions.Actions;
+import actions.Simulation;
+import data_structures.MinHeap;
+import data_structures.ProbingHashMap;
+import file_io.MapLoader;
+import file_io.TraceSink;
+import models.DistanceMetric;
+import models.Graph;
+import models.Node;
+import pathfinding.AStarSearch;
+import pathfinding.Heuristic;
+import pathfinding.JumpPointSearch;
+import pathfinding.LandmarkHeuristic;
+import pathfinding.SearchEngine;
+import pathfinding.UniformGrid;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the routes the wizard takes and the options it chooses are unchanged on seeded maps with
+ * equal travel times, where most destinations are reached by many routes of the same cost. The choice
+ * between routes depends on the order the priority queue settles nodes in, and the choice between
+ * options compares distances summed in different orders, which may differ in the last bits. Three
+ * checks are run:
+ * <ul>
+ *     <li>every route planned by {@link Actions#findShortestPath(Graph, Node, Node)} is compared with
+ *     a reference search over the generic {@link MinHeap}, which the routes of the action log were
+ *     originally chosen by;</li>
+ *     <li>the action log of a whole simulation of a generated scenario is compared line by line with
+ *     the log recorded before the searches were reworked, kept in {@code benchmarks/traces};</li>
+ *     <li>on a 4-connected and an 8-connected map, whose straight and diagonal steps add up to many
+ *     nearly equal sums, the distances the goal-directed engines price the options with are compared
+ *     bit for bit with those of {@link Actions#findShortestPath(Graph, Node, Node, int)}.</li>
+ * </ul>
+ *
+ * <p>Usage: {@code java -cp out benchmarks.RegressionCheck [key=value ...]} from the project root, with
+ * the parameters {@code size}, {@code density}, {@code queries} and {@code seed} of the route and engine
+ * checks and {@code log} (the recorded log). Exits with status 1 on the first difference.
+ */
+public class RegressionCheck {
+    private static final String[] LOG_SCENARIO = {"width=40", "weights=constant", "density=0.15",
+            "objectives=40", "radius=3", "seed=3"}; // ScenarioGenerator parameters of the recorded log
+
+    /**
+     * Runs the check.
+     *
+     * @param args the parameters as {@code key=value} pairs
+     * @throws IOException if the scenario or a log cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        ProbingHashMap<String, String> parameters = new ProbingHashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            parameters.put(parts[0], parts[1]);
+        }
+        int size = Integer.parseInt(parameters.getOrDefault("size", "64"));
+        double density = Double.parseDouble(parameters.getOrDefault("density", "0.15"));
+        int queries = Integer.parseInt(parameters.getOrDefault("queries", "1000"));
+        long seed = Long.parseLong(parameters.getOrDefault("seed", "1"));
+        File log = new File(parameters.getOrDefault("log", "benchmarks/traces/equal-weight.txt"));
+
+        MapGenerator generator = new MapGenerator(size, size, "constant", density, seed);
+        Graph graph = generator.build();
+        Random random = new Random(seed);
+
+        // Reveal half of the hidden obstacles, so that routes also bend around impassable cells
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            if (generator.getNodeType(id / size, id % size) > 1 && random.nextBoolean()) {
+                graph.discoverNode(id);
+            }
+        }
+
+        for (int i = 0; i < queries; i++) {
+            int[] source = generator.randomFreeCell(random);
+            int[] destination = generator.randomFreeCell(random);
+            Node initialNode = graph.getNode(source[0] * size + source[1]);
+            Node destinationNode = graph.getNode(destination[0] * size + destination[1]);
+            String route = describe(graph, Actions.findShortestPath(graph, initialNode, destinationNode));
+            String expected = describe(graph, findReferencePath(graph, initialNode, destinationNode));
+            if (!route.equals(expected)) {
+                System.out.printf("Route %d from %d-%d to %d-%d differs%n  expected: %s%n  actual:   %s%n",
+                        i, source[0], source[1], destination[0], destination[1], expected, route);
+                System.exit(1);
+            }
+        }
+        System.out.printf("%d routes unchanged%n", queries);
+
+        checkLog(log);
+        checkEngines(size, density, queries, seed, true);
+        checkEngines(size, density, queries, seed, false);
+    }
+
+    /**
+     * Prices random queries on a map of equal travel times with every goal-directed engine the simulation
+     * may pick by itself, and compares the distances with those of Dijkstra's algorithm.
+     *
+     * @param size     the side of the map
+     * @param density  the share of hidden obstacles
+     * @param queries  the number of queries
+     * @param seed     the random seed
+     * @param diagonal whether the map is 8-connected
+     */
+    private static void checkEngines(int size, double density, int queries, long seed, boolean diagonal) {
+        MapGenerator generator = new MapGenerator(size, size, "constant", density, diagonal, seed);
+        Graph graph = generator.build();
+        Random random = new Random(seed);
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            if (generator.getNodeType(id / size, id % size) > 1 && random.nextBoolean()) {
+                graph.discoverNode(id);
+            }
+        }
+
+        String[] names = {"astar octile", "astar euclidean", "astar landmarks", "jump-point"};
+        Heuristic heuristic = new Heuristic(graph, DistanceMetric.OCTILE);
+        SearchEngine[] engines = {
+                new AStarSearch(heuristic),
+                new AStarSearch(new Heuristic(graph, DistanceMetric.EUCLIDEAN)),
+                new AStarSearch(LandmarkHeuristic.of(graph, DistanceMetric.OCTILE, 8)),
+                new JumpPointSearch(UniformGrid.of(graph), heuristic)};
+        // Jump point search is only picked by itself on 4-connected grids
+        int engineCount = diagonal ? engines.length - 1 : engines.length;
+        for (int i = 0; i < queries; i++) {
+            int[] source = generator.randomFreeCell(random);
+            int[] destination = generator.randomFreeCell(random);
+            Node initialNode = graph.getNode(source[0] * size + source[1]);
+            Node destinationNode = graph.getNode(destination[0] * size + destination[1]);
+            int nodeType = 2 + random.nextInt(MapGenerator.HIDDEN_TYPES);
+            double expected = Actions.findShortestPath(graph, initialNode, destinationNode, nodeType);
+            for (int e = 0; e < engineCount; e++) {
+                double distance = engines[e].findShortestPath(graph, initialNode, destinationNode, nodeType);
+                if (Double.compare(distance, expected) != 0) {
+                    System.out.printf("Distance %d from %d-%d to %d-%d over type %d differs with %s%n"
+                                    + "  expected: %s%n  actual:   %s%n", i, source[0], source[1], destination[0],
+                            destination[1], nodeType, names[e], expected, distance);
+                    System.exit(1);
+                }
+            }
+        }
+        System.out.printf("%d distances unchanged with %d engines on the %d-connected map%n", queries, engineCount,
+                diagonal ? 8 : 4);
+    }
+
+    /**
+     * Runs the scenario of the recorded log and compares the actions line by line.
+     *
+     * @param log the recorded action log
+     * @throws IOException if the scenario or a log cannot be written or read
+     */
+    private static void checkLog(File log) throws IOException {
+        Path directory = Files.createTempDirectory("regression");
+        String prefix = directory.resolve("scenario").toString();
+        String[] arguments = Arrays.copyOf(LOG_SCENARIO, LOG_SCENARIO.length + 1);
+        arguments[LOG_SCENARIO.length] = "prefix=" + prefix;
+        ScenarioGenerator.main(arguments);
+
+        MapLoader mapLoader = new MapLoader();
+        mapLoader.loadNodes(new File(prefix + "-nodes.txt"));
+        Graph graph = mapLoader.loadEdges(new File(prefix + "-edges.txt"));
+        Node[][] land = mapLoader.getLand();
+        File output = new File(prefix + "-output.txt");
+        List<String> objectives = Files.readAllLines(Path.of(prefix + "-objectives.txt"));
+        try (TraceSink trace = TraceSink.open(output, "text")) {
+            int radius = Integer.parseInt(objectives.get(0));
+            String[] start = objectives.get(1).split(" ");
+            Node initialNode = land[Integer.parseInt(start[0])][Integer.parseInt(start[1])];
+            Simulation simulation = new Simulation(land, graph, mapLoader.getNodesWithTwoOrMoreType(), radius,
+                    initialNode, trace);
+            for (String line : objectives.subList(2, objectives.size())) {
+                simulation.runObjective(line);
+            }
+        }
+
+        List<String> expected = Files.readAllLines(log.toPath());
+        List<String> actual = Files.readAllLines(output.toPath());
+        for (String name : new String[]{"nodes", "edges", "objectives", "output"}) {
+            Files.delete(Path.of(prefix + "-" + name + ".txt"));
+        }
+        Files.delete(directory);
+        for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            String expectedLine = i < expected.size() ? expected.get(i) : "<end of log>";
+            String actualLine = i < actual.size() ? actual.get(i) : "<end of log>";
+            if (!expectedLine.equals(actualLine)) {
+                System.out.printf("Action log differs at line %d%n  expected: %s%n  actual:   %s%n",
+                        i + 1, expectedLine, actualLine);
+                System.exit(1);
+            }
+        }
+        System.out.printf("%d logged actions unchanged%n", actual.size());
+    }
+
+    /**
+     * Finds the shortest path with Dijkstra's algorithm over a {@link MinHeap} of node distances,
+     * inserting a new entry whenever a distance improves and skipping stale entries when popped.
+     *
+     * @param graph           the compressed adjacency of the land
+     * @param initialNode     the starting node
+     * @param destinationNode the destination node
+     * @return a list of nodes from the destination back to the start, or null if no path exists
+     */
+    private static ArrayList<Node> findReferencePath(Graph graph, Node initialNode, Node destinationNode) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] distances = new double[graph.getNodeCount()];
+        int[] previous = new int[graph.getNodeCount()];
+        boolean[] visited = new boolean[graph.getNodeCount()];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        int source = graph.getNodeId(initialNode);
+        int destination = graph.getNodeId(destinationNode);
+
+        MinHeap<NodeDistance> minHeap = new MinHeap<>(100);
+        distances[source] = 0.0;
+        previous[source] = -1;
+        minHeap.insert(new NodeDistance(source, 0.0));
+        while (!minHeap.isEmpty()) {
+            int currentNode = minHeap.getMin().id;
+            if (visited[currentNode]) continue;
+            visited[currentNode] = true;
+
+            if (currentNode == destination) {
+                ArrayList<Node> path = new ArrayList<>();
+                for (int current = destination; current != -1; current = previous[current]) {
+                    path.add(graph.getNode(current));
+                }
+                return path;
+            }
+            for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                int neighbor = targets[edge];
+                double newDistance = distances[currentNode] + graph.getTravelTime(edge);
+                if (newDistance < distances[neighbor]) {
+                    distances[neighbor] = newDistance;
+                    previous[neighbor] = currentNode;
+                    minHeap.insert(new NodeDistance(neighbor, newDistance));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a route as its cells.
+     *
+     * @param graph the compressed adjacency of the land
+     * @param path  the route, or null
+     * @return the cells of the route as {@code x-y} separated by spaces, or {@code none}
+     */
+    private static String describe(Graph graph, ArrayList<Node> path) {
+        if (path == null) {
+            return "none";
+        }
+        StringBuilder cells = new StringBuilder();
+        for (Node node : path) {
+            cells.append(node.getxCoordinate()).append('-').append(node.getyCoordinate()).append(' ');
+        }
+        return cells.toString().trim();
+    }
+
+    /**
+     * A node id paired with its tentative distance, ordered by distance only.
+     */
+    private static final class NodeDistance implements Comparable<NodeDistance> {
+        private final int id; // The node id
+        private final double distance; // Tentative distance of the node from the start
+
+        NodeDistance(int id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(NodeDistance other) {
+            return distance > other.distance ? 1 : distance < other.distance ? -1 : 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import data_structures.ProbingHashMap;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Writes reproducible scenarios for whole simulation runs: a nodes, edges and objectives file
+ * named {@code <prefix>-nodes.txt}, {@code <prefix>-edges.txt} and {@code <prefix>-objectives.txt}.
+ * The wizard's start and every destination lie in one connected region of cells of type 0,
+ * so every objective stays reachable whatever obstacles are discovered on the way.
+ *
+ * <p>Usage: {@code java -cp out benchmarks.ScenarioGenerator prefix=<path> [key=value ...]} with the
+ * parameters {@code width}, {@code height}, {@code weights}, {@code density} (share of hidden obstacles),
+ * {@code diagonal} ({@code true} to also link diagonal neighbours), {@code objectives}, {@code radius},
+ * {@code options} (share of objective lines offering options), {@code maxOptions} (widest option list)
+ * and {@code seed}.
+ */
+public class ScenarioGenerator {
+    private static final int START_ATTEMPTS = 20; // Starts tried before settling for the largest region found
+
+    /**
+     * Generates the scenario described by the arguments.
+     *
+     * @param args the parameters as {@code key=value} pairs
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        ProbingHashMap<String, String> parameters = new ProbingHashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            parameters.put(parts[0], parts[1]);
+        }
+        String prefix = parameters.getOrDefault("prefix", "scenario");
+        int width = Integer.parseInt(parameters.getOrDefault("width", "1000"));
+        int height = Integer.parseInt(parameters.getOrDefault("height", String.valueOf(width)));
+        String weights = parameters.getOrDefault("weights", "uniform");
+        double density = Double.parseDouble(parameters.getOrDefault("density", "0.1"));
+        boolean diagonal = Boolean.parseBoolean(parameters.getOrDefault("diagonal", "false"));
+        int objectives = Integer.parseInt(parameters.getOrDefault("objectives", "1000"));
+        int radius = Integer.parseInt(parameters.getOrDefault("radius", "5"));
+        double options = Double.parseDouble(parameters.getOrDefault("options", "0.3"));
+        int maxOptions = Integer.parseInt(parameters.getOrDefault("maxOptions", "4"));
+        long seed = Long.parseLong(parameters.getOrDefault("seed", "1"));
+
+        MapGenerator generator = new MapGenerator(width, height, weights, density, diagonal, seed);
+        generator.write(new File(prefix + "-nodes.txt"), new File(prefix + "-edges.txt"));
+
+        // Start in a region of free cells holding a quarter of the grid, or the largest one found
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        int[] start = null;
+        BitSet component = new BitSet();
+        for (int attempt = 0; attempt < START_ATTEMPTS && component.cardinality() < (long) width * height / 4; attempt++) {
+            int[] candidate = generator.randomFreeCell(random);
+            BitSet candidateComponent = generator.freeComponent(candidate[0], candidate[1]);
+            if (candidateComponent.cardinality() > component.cardinality()) {
+                start = candidate;
+                component = candidateComponent;
+            }
+        }
+        if (component.cardinality() < 2) {
+            throw new IllegalArgumentException("The map has no two connected free cells");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(prefix + "-objectives.txt"))) {
+            writer.write(radius + "\n");
+            writer.write(start[0] + " " + start[1] + "\n");
+            int[] previous = start;
+            for (int i = 0; i < objectives; i++) {
+                int[] destination;
+                do {
+                    destination = generator.randomFreeCell(random);
+                } while (!component.get(destination[0] * height + destination[1])
+                        || (destination[0] == previous[0] && destination[1] == previous[1]));
+                StringBuilder line = new StringBuilder().append(destination[0]).append(' ').append(destination[1]);
+                if (random.nextDouble() < options) {
+                    int optionCount = 1 + random.nextInt(maxOptions);
+                    for (int j = 0; j < optionCount; j++) {
+                        line.append(' ').append(2 + random.nextInt(MapGenerator.HIDDEN_TYPES));
+                    }
+                }
+                writer.write(line.append('\n').toString());
+                previous = destination;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package benchmarks;
+
+import actions.Simulation;
+import data_structures.IntHashMap;
+import file_io.MapLoader;
+import file_io.TraceSink;
+import models.Graph;
+import models.Node;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Scanner;
+
+/**
+ * Replays whole simulations the way {@code Main} runs them and measures them: load time, objectives
+ * per second, the p50, p99 and maximum latency of an objective, routes planned per objective and the
+ * peak heap usage. Every run is appended as one JSON object per line to the results file, so the
+ * results of two builds can be compared line by line.
+ *
+ * <p>Usage: {@code java -cp out benchmarks.ScenarioRunner results.jsonl <prefix> [<prefix> ...]} where each
+ * prefix names the files written by {@link ScenarioGenerator}. The wizard's actions are written to
+ * {@code <prefix>-output.txt}. The system properties of {@code Main} apply, and {@code -Druns=N}
+ * repeats every scenario N times.
+ */
+public class ScenarioRunner {
+
+    /**
+     * Runs the scenarios named by the arguments.
+     *
+     * @param args the results file followed by the scenario prefixes
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int runs = Integer.getInteger("runs", 1);
+        try (BufferedWriter results = new BufferedWriter(new FileWriter(args[0], true))) {
+            for (int i = 1; i < args.length; i++) {
+                for (int run = 1; run <= runs; run++) {
+                    String result = runScenario(args[i], run);
+                    System.out.println(result);
+                    results.write(result);
+                    results.newLine();
+                    results.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads and runs one scenario.
+     *
+     * @param prefix the path prefix of the scenario's files
+     * @param run    the number of the run
+     * @return the measurements as a JSON object
+     * @throws IOException if a file cannot be read or written
+     */
+    private static String runScenario(String prefix, int run) throws IOException {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        long loadStart = System.nanoTime();
+        MapLoader mapLoader = new MapLoader();
+        mapLoader.loadNodes(new File(prefix + "-nodes.txt"));
+        Node[][] land = mapLoader.getLand();
+        IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType = mapLoader.getNodesWithTwoOrMoreType();
+        Graph graph = mapLoader.loadEdges(new File(prefix + "-edges.txt"));
+        long loadNanos = System.nanoTime() - loadStart;
+
+        Scanner objectivesFile = new Scanner(new File(prefix + "-objectives.txt"));
+        int radius = Integer.parseInt(objectivesFile.nextLine());
+        String[] lineParts = objectivesFile.nextLine().split(" ");
+        Node initialNode = land[Integer.parseInt(lineParts[0])][Integer.parseInt(lineParts[1])];
+        ArrayList<String> lines = new ArrayList<>();
+        while (objectivesFile.hasNextLine()) {
+            lines.add(objectivesFile.nextLine());
+        }
+        objectivesFile.close();
+
+        long[] latencies = new long[lines.size()];
+        long planCount = 0;
+        long runStart = System.nanoTime();
+        try (TraceSink trace = TraceSink.open(new File(prefix + "-output.txt"),
+                System.getProperty("wizard.trace", "text"))) {
+            Simulation simulation = new Simulation(land, graph, nodesWithTwoOrMoreType, radius, initialNode, trace);
+            for (int i = 0; i < lines.size(); i++) {
+                long start = System.nanoTime();
+                planCount += simulation.runObjective(lines.get(i));
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        long runNanos = System.nanoTime() - runStart;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        Arrays.sort(latencies);
+        int objectives = latencies.length;
+        return String.format(Locale.ROOT, "{\"scenario\":\"%s\",\"run\":%d,\"nodes\":%d,\"edges\":%d,"
+                        + "\"objectives\":%d,\"loadSeconds\":%.3f,\"runSeconds\":%.3f,\"objectivesPerSecond\":%.2f,"
+                        + "\"latencyMillis\":{\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f},\"plansPerObjective\":%.3f,"
+                        + "\"peakHeapBytes\":%d}",
+                prefix.replace("\\", "\\\\").replace("\"", "\\\""), run, graph.getNodeCount(), graph.getEdgeCount(),
+                objectives, loadNanos / 1e9, runNanos / 1e9, objectives / (runNanos / 1e9),
+                percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6,
+                objectives == 0 ? 0 : latencies[objectives - 1] / 1e6,
+                objectives == 0 ? 0 : (double) planCount / objectives, peakHeap);
+    }
+
+    /**
+     * Picks a percentile from sorted values by the nearest-rank method.
+     *
+     * @param sorted     the values in ascending order
+     * @param percentile the percentile in (0, 100]
+     * @return the value at that percentile, or 0 if there are none
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
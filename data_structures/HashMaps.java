@@ -0,0 +1,51 @@
+package data_structures;
+
+/**
+ * Hashing and sizing shared by the open-addressing maps.
+ */
+final class HashMaps {
+    private static final int MAX_SLOTS = 1 << 30; // Largest power of two an array can hold
+
+    private HashMaps() {
+    }
+
+    /**
+     * Scrambles an int hash so that its low bits, which select the slot after masking, depend on all input bits.
+     *
+     * @param hash the hash or int key
+     * @return the scrambled hash
+     */
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Scrambles a long key down to an int hash.
+     *
+     * @param key the key
+     * @return the scrambled hash
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Computes the number of slots holding the expected entries without exceeding the load factor.
+     *
+     * @param expectedSize the number of entries expected
+     * @param maxLoad      the largest share of occupied slots
+     * @return a power of two of at least 2 slots
+     */
+    static int slotsFor(int expectedSize, double maxLoad) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + expectedSize);
+        }
+        long needed = (long) Math.ceil(expectedSize / maxLoad);
+        if (needed > MAX_SLOTS) {
+            throw new IllegalArgumentException("Capacity too large: " + expectedSize);
+        }
+        return needed <= 2 ? 2 : Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
@@ -0,0 +1,326 @@
+package data_structures;
+
+import metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * An indexed d-ary min-heap of integer node ids keyed by double priorities, with decrease-key.
+ * Ids and keys are kept in parallel primitive arrays and a position index maps every id to its
+ * slot in the heap, so each id is present at most once and no objects are allocated per operation.
+ * Elements with equal keys are ordered by an optional secondary key.
+ */
+public class IndexedMinHeap {
+    private final int arity; // Number of children per heap slot
+    private int[] ids; // 0-based heap array of node ids
+    private double[] keys; // Priority of the id at the same heap slot
+    private double[] tieKeys; // Secondary priority of the id at the same heap slot
+    private int[] positions = new int[0]; // Heap slot of each node id, or -1 if absent
+    private int size; // Number of elements in the heap
+    private long pushCount; // Insertions over the heap's lifetime, counted only when metrics are enabled
+    private long popCount; // Removals of the minimum over the heap's lifetime, counted only when metrics are enabled
+
+    /**
+     * Constructs a new heap with the given arity and initial capacity.
+     *
+     * @param arity    the number of children per slot, at least 2
+     * @param capacity the initial capacity of the heap
+     */
+    public IndexedMinHeap(int arity, int capacity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2");
+        }
+        this.arity = arity;
+        this.ids = new int[Math.max(1, capacity)];
+        this.keys = new double[Math.max(1, capacity)];
+        this.tieKeys = new double[Math.max(1, capacity)];
+    }
+
+    /**
+     * Makes sure that node ids below the given bound can be stored in the heap.
+     *
+     * @param idBound the exclusive upper bound of the node ids
+     */
+    public void ensureIdCapacity(int idBound) {
+        if (positions.length < idBound) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, idBound);
+            Arrays.fill(positions, oldLength, idBound, -1);
+        }
+    }
+
+    /**
+     * Checks if the given id is currently in the heap.
+     *
+     * @param id the node id
+     * @return {@code true} if the id is in the heap, {@code false} otherwise
+     */
+    public boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * Inserts an id with the given key. The id must not already be in the heap.
+     *
+     * @param id  the node id
+     * @param key the priority of the id
+     */
+    public void insert(int id, double key) {
+        insert(id, key, 0.0);
+    }
+
+    /**
+     * Inserts an id with the given key and secondary key. The id must not already be in the heap.
+     *
+     * @param id     the node id
+     * @param key    the priority of the id
+     * @param tieKey the priority among ids with an equal key
+     */
+    public void insert(int id, double key, double tieKey) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * size);
+            keys = Arrays.copyOf(keys, 2 * size);
+            tieKeys = Arrays.copyOf(tieKeys, 2 * size);
+        }
+        percolateUp(size++, id, key, tieKey);
+        if (Metrics.ENABLED) pushCount++;
+    }
+
+    /**
+     * Lowers the key of an id that is already in the heap.
+     *
+     * @param id  the node id
+     * @param key the new priority, not greater than the current one
+     */
+    public void decreaseKey(int id, double key) {
+        decreaseKey(id, key, 0.0);
+    }
+
+    /**
+     * Lowers the key and secondary key of an id that is already in the heap.
+     *
+     * @param id     the node id
+     * @param key    the new priority, not greater than the current one
+     * @param tieKey the new priority among ids with an equal key
+     */
+    public void decreaseKey(int id, double key, double tieKey) {
+        percolateUp(positions[id], id, key, tieKey);
+    }
+
+    /**
+     * Inserts the id, or lowers its key if it is already in the heap.
+     *
+     * @param id  the node id
+     * @param key the priority of the id
+     */
+    public void insertOrDecrease(int id, double key) {
+        insertOrDecrease(id, key, 0.0);
+    }
+
+    /**
+     * Inserts the id, or lowers its keys if it is already in the heap.
+     *
+     * @param id     the node id
+     * @param key    the priority of the id
+     * @param tieKey the priority among ids with an equal key
+     */
+    public void insertOrDecrease(int id, double key, double tieKey) {
+        if (positions[id] >= 0) {
+            decreaseKey(id, key, tieKey);
+        } else {
+            insert(id, key, tieKey);
+        }
+    }
+
+    /**
+     * Retrieves the key of the minimum element without removing it.
+     *
+     * @return the minimum key
+     */
+    public double getMinKey() {
+        return keys[0];
+    }
+
+    /**
+     * Retrieves the secondary key of the minimum element without removing it.
+     *
+     * @return the secondary key of the minimum element
+     */
+    public double getMinTieKey() {
+        return tieKeys[0];
+    }
+
+    /**
+     * Retrieves the id of the minimum element without removing it.
+     *
+     * @return the id with the minimum key
+     */
+    public int peekMin() {
+        return ids[0];
+    }
+
+    /**
+     * Removes and returns the id with the minimum key.
+     *
+     * @return the id with the minimum key
+     */
+    public int removeMin() {
+        if (Metrics.ENABLED) popCount++;
+        int min = ids[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            percolateDown(0, ids[size], keys[size], tieKeys[size]);
+        }
+        return min;
+    }
+
+    /**
+     * Removes an arbitrary id from the heap if present.
+     *
+     * @param id the node id
+     */
+    public void remove(int id) {
+        int index = positions[id];
+        if (index < 0) {
+            return;
+        }
+        positions[id] = -1;
+        size--;
+        if (index < size) {
+            int lastId = ids[size];
+            double lastKey = keys[size];
+            double lastTieKey = tieKeys[size];
+            int parent = (index - 1) / arity;
+            if (index > 0 && less(lastKey, lastTieKey, keys[parent], tieKeys[parent])) {
+                percolateUp(index, lastId, lastKey, lastTieKey);
+            } else {
+                percolateDown(index, lastId, lastKey, lastTieKey);
+            }
+        }
+    }
+
+    /**
+     * Checks if the heap is empty.
+     *
+     * @return {@code true} if the heap is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retrieves the number of elements in the heap.
+     *
+     * @return the size of the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of insertions over the heap's lifetime. Only counted when metrics are enabled.
+     *
+     * @return the push count
+     */
+    public long getPushCount() {
+        return pushCount;
+    }
+
+    /**
+     * Retrieves the number of removals of the minimum over the heap's lifetime. Only counted when metrics are enabled.
+     *
+     * @return the pop count
+     */
+    public long getPopCount() {
+        return popCount;
+    }
+
+    /**
+     * Removes all elements from the heap. Runs in time proportional to the current size.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[ids[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves a hole at the given slot up until the id fits, then places the id there.
+     *
+     * @param index  the starting slot
+     * @param id     the id to place
+     * @param key    the key of the id
+     * @param tieKey the secondary key of the id
+     */
+    private void percolateUp(int index, int id, double key, double tieKey) {
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (!less(key, tieKey, keys[parent], tieKeys[parent])) {
+                break;
+            }
+            place(index, ids[parent], keys[parent], tieKeys[parent]);
+            index = parent;
+        }
+        place(index, id, key, tieKey);
+    }
+
+    /**
+     * Moves a hole at the given slot down until the id fits, then places the id there.
+     *
+     * @param index  the starting slot
+     * @param id     the id to place
+     * @param key    the key of the id
+     * @param tieKey the secondary key of the id
+     */
+    private void percolateDown(int index, int id, double key, double tieKey) {
+        while (true) {
+            int firstChild = index * arity + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + arity, size);
+            int smallest = firstChild;
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (less(keys[child], tieKeys[child], keys[smallest], tieKeys[smallest])) {
+                    smallest = child;
+                }
+            }
+            if (!less(keys[smallest], tieKeys[smallest], key, tieKey)) {
+                break;
+            }
+            place(index, ids[smallest], keys[smallest], tieKeys[smallest]);
+            index = smallest;
+        }
+        place(index, id, key, tieKey);
+    }
+
+    /**
+     * Compares two elements by key, then by secondary key.
+     *
+     * @param key         the key of the first element
+     * @param tieKey      the secondary key of the first element
+     * @param otherKey    the key of the second element
+     * @param otherTieKey the secondary key of the second element
+     * @return {@code true} if the first element orders strictly before the second
+     */
+    private static boolean less(double key, double tieKey, double otherKey, double otherTieKey) {
+        return key < otherKey || (key == otherKey && tieKey < otherTieKey);
+    }
+
+    /**
+     * Stores an id and its key at the given slot and records the slot in the position index.
+     *
+     * @param index  the slot
+     * @param id     the id to store
+     * @param key    the key of the id
+     * @param tieKey the secondary key of the id
+     */
+    private void place(int index, int id, double key, double tieKey) {
+        ids[index] = id;
+        keys[index] = key;
+        tieKeys[index] = tieKey;
+        positions[id] = index;
+    }
+}
@@ -0,0 +1,247 @@
+package data_structures;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * A hash map from primitive int keys to objects using open addressing with linear probing.
+ * Keys and values live in two parallel arrays whose length is a power of two, so a lookup is a
+ * multiplicative hash, a mask and a scan over adjacent slots, without boxing the key or
+ * allocating a chain node per entry. Values may not be {@code null}; an empty slot is marked by a
+ * {@code null} value.
+ *
+ * @param <V> the type of mapped values
+ */
+public class IntHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16; // Expected entries when no capacity is given
+    private static final double MAX_LOAD = 0.5; // Largest share of occupied slots before growing
+
+    private int[] keys; // Key of each slot
+    private V[] values; // Value of each slot, null when the slot is empty
+    private int mask; // Number of slots minus one
+    private int size; // Number of entries in the map
+    private int growAt; // Number of entries that triggers the next resize
+
+    /**
+     * Constructs an empty map with a small initial capacity.
+     */
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map that holds the given number of entries without resizing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    public IntHashMap(int expectedSize) {
+        allocate(HashMaps.slotsFor(expectedSize, MAX_LOAD));
+    }
+
+    /**
+     * Constructs a map holding the same entries as another one. The values themselves are shared.
+     *
+     * @param other the map to copy
+     */
+    public IntHashMap(IntHashMap<V> other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.growAt = other.growAt;
+    }
+
+    /**
+     * Inserts a key-value pair, replacing the value of an existing key.
+     *
+     * @param key   the key to insert
+     * @param value the value to associate with the key, not {@code null}
+     * @return the previous value of the key, or {@code null} if it was absent
+     */
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntHashMap values may not be null");
+        }
+        int slot = HashMaps.mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > growAt) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the value associated with the given key.
+     *
+     * @param key the key to look up
+     * @return the value associated with the key, or {@code null} if the key does not exist
+     */
+    public V get(int key) {
+        int slot = HashMaps.mix(key) & mask;
+        V value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the value associated with the given key, or returns the specified default value
+     * if the key does not exist in the map.
+     *
+     * @param key          the key to look up
+     * @param defaultValue the default value to return if the key does not exist
+     * @return the value associated with the key, or the default value if the key is not found
+     */
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Retrieves the value associated with the given key, or creates, stores and returns a new one
+     * if the key does not exist.
+     *
+     * @param key     the key to look up
+     * @param factory creates the value of an absent key
+     * @return the existing or newly created value
+     */
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Checks if the map contains the specified key.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Removes the entry of the given key. The entries probed after it are shifted back into
+     * the freed slot, so lookups never need tombstones.
+     *
+     * @param key the key to remove
+     * @return the removed value, or {@code null} if the key did not exist
+     */
+    public V remove(int key) {
+        int slot = HashMaps.mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V removed = values[slot];
+                shiftBack(slot);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the number of entries in the map.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Collects all keys currently stored in the map.
+     *
+     * @return a list of the keys in slot order
+     */
+    public IntList keys() {
+        IntList keyList = new IntList();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                keyList.add(keys[slot]);
+            }
+        }
+        return keyList;
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Empties a slot and moves every later entry of its probe run that may live there back into it.
+     *
+     * @param slot the slot to empty
+     */
+    private void shiftBack(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == null) {
+                break;
+            }
+            int home = HashMaps.mix(keys[next]) & mask;
+            // The entry may move to the free slot only if its home is not cyclically in (slot, next]
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        values[slot] = null;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts every entry.
+     */
+    private void resize() {
+        int[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(2 * oldValues.length);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = HashMaps.mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Replaces the slot arrays with empty ones.
+     *
+     * @param slots the number of slots, a power of two
+     */
+    @SuppressWarnings("unchecked")
+    private void allocate(int slots) {
+        keys = new int[slots];
+        values = (V[]) new Object[slots];
+        mask = slots - 1;
+        growAt = (int) (slots * MAX_LOAD);
+    }
+}
@@ -0,0 +1,56 @@
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, used to collect node ids without boxing.
+ */
+public class IntList {
+    private int[] values; // Backing array of the list
+    private int size; // Number of values in the list
+
+    /**
+     * Constructs an empty list with a small initial capacity.
+     */
+    public IntList() {
+        this.values = new int[16];
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     *
+     * @param value the value to append
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * size);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Retrieves the value at the given position.
+     *
+     * @param index the position of the value
+     * @return the value
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Retrieves the number of values in the list.
+     *
+     * @return the size of the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values while keeping the current capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
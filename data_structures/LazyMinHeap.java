@@ -0,0 +1,128 @@
+package data_structures;
+
+import metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * A primitive binary min-heap of integer node ids keyed by double priorities, without decrease-key.
+ * Lowering the key of an id inserts it again, and the search skips the stale entry once it is popped.
+ * Entries move between the same slots under the same comparisons as in {@link MinHeap}, so ids with
+ * equal keys leave the heap in exactly the order {@link MinHeap} gives them. A search that settles
+ * nodes in pop order therefore picks the same route among routes of equal cost.
+ * Ids and keys are kept in parallel primitive arrays, so no objects are allocated per operation.
+ */
+public class LazyMinHeap {
+    private int[] ids; // 1-based heap array of node ids, index 0 is unused
+    private double[] keys; // Priority of the id at the same heap slot
+    private int size; // Number of entries in the heap
+    private long pushCount; // Insertions over the heap's lifetime, counted only when metrics are enabled
+    private long popCount; // Removals of the minimum over the heap's lifetime, counted only when metrics are enabled
+
+    /**
+     * Constructs a new heap with the given initial capacity.
+     *
+     * @param capacity the initial capacity of the heap
+     */
+    public LazyMinHeap(int capacity) {
+        this.ids = new int[Math.max(1, capacity) + 1];
+        this.keys = new double[Math.max(1, capacity) + 1];
+    }
+
+    /**
+     * Inserts an id with the given key, next to any entries the id already has.
+     *
+     * @param id  the node id
+     * @param key the priority of the id
+     */
+    public void insert(int id, double key) {
+        if (size + 1 == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * ids.length);
+            keys = Arrays.copyOf(keys, 2 * keys.length);
+        }
+        // Move the hole up while the parent is strictly greater, as the swaps of MinHeap do
+        int index = ++size;
+        while (index > 1 && keys[index / 2] > key) {
+            ids[index] = ids[index / 2];
+            keys[index] = keys[index / 2];
+            index /= 2;
+        }
+        ids[index] = id;
+        keys[index] = key;
+        if (Metrics.ENABLED) pushCount++;
+    }
+
+    /**
+     * Removes and returns the id of the entry with the minimum key.
+     *
+     * @return the id with the minimum key
+     */
+    public int removeMin() {
+        if (Metrics.ENABLED) popCount++;
+        int min = ids[1];
+        int id = ids[size];
+        double key = keys[size];
+        size--;
+
+        // Move the hole down from the root, preferring the left child unless the right one is smaller
+        int index = 1;
+        while (2 * index <= size) {
+            int smallest = 2 * index;
+            if (smallest < size && keys[smallest] > keys[smallest + 1]) {
+                smallest++;
+            }
+            if (key <= keys[smallest]) {
+                break;
+            }
+            ids[index] = ids[smallest];
+            keys[index] = keys[smallest];
+            index = smallest;
+        }
+        ids[index] = id;
+        keys[index] = key;
+        return min;
+    }
+
+    /**
+     * Checks if the heap is empty.
+     *
+     * @return {@code true} if the heap is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retrieves the number of entries in the heap, stale ones included.
+     *
+     * @return the size of the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of insertions over the heap's lifetime. Only counted when metrics are enabled.
+     *
+     * @return the push count
+     */
+    public long getPushCount() {
+        return pushCount;
+    }
+
+    /**
+     * Retrieves the number of removals of the minimum over the heap's lifetime. Only counted when metrics are enabled.
+     *
+     * @return the pop count
+     */
+    public long getPopCount() {
+        return popCount;
+    }
+
+    /**
+     * Removes all entries from the heap while keeping its current capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,239 @@
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long keys to primitive int values using open addressing with linear
+ * probing. It is meant for cells keyed by their packed coordinates, see {@link #pack(int, int)}, and
+ * stores neither boxed keys nor boxed values. The key {@link Long#MIN_VALUE} marks empty slots and
+ * cannot be stored.
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE; // Key of an empty slot
+    private static final int DEFAULT_CAPACITY = 16; // Expected entries when no capacity is given
+    private static final double MAX_LOAD = 0.5; // Largest share of occupied slots before growing
+
+    private long[] keys; // Key of each slot, EMPTY when the slot is empty
+    private int[] values; // Value of each slot
+    private int mask; // Number of slots minus one
+    private int size; // Number of entries in the map
+    private int growAt; // Number of entries that triggers the next resize
+
+    /**
+     * Constructs an empty map with a small initial capacity.
+     */
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map that holds the given number of entries without resizing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(HashMaps.slotsFor(expectedSize, MAX_LOAD));
+    }
+
+    /**
+     * Packs the coordinates of a cell into one key.
+     *
+     * @param xCoordinate the x-coordinate
+     * @param yCoordinate the y-coordinate
+     * @return the x-coordinate in the high half and the y-coordinate in the low half
+     */
+    public static long pack(int xCoordinate, int yCoordinate) {
+        return ((long) xCoordinate << 32) | (yCoordinate & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Extracts the x-coordinate of a packed key.
+     *
+     * @param key the packed key
+     * @return the x-coordinate
+     */
+    public static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Extracts the y-coordinate of a packed key.
+     *
+     * @param key the packed key
+     * @return the y-coordinate
+     */
+    public static int unpackY(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Inserts a key-value pair, replacing the value of an existing key.
+     *
+     * @param key   the key to insert, not {@link Long#MIN_VALUE}
+     * @param value the value to associate with the key
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        int slot = HashMaps.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > growAt) {
+            resize();
+        }
+    }
+
+    /**
+     * Retrieves the value associated with the given key, or returns the specified default value
+     * if the key does not exist in the map.
+     *
+     * @param key          the key to look up
+     * @param defaultValue the default value to return if the key does not exist
+     * @return the value associated with the key, or the default value if the key is not found
+     */
+    public int getOrDefault(long key, int defaultValue) {
+        int slot = HashMaps.mix(key) & mask;
+        long slotKey;
+        while ((slotKey = keys[slot]) != EMPTY) {
+            if (slotKey == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Checks if the map contains the specified key.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    public boolean containsKey(long key) {
+        int slot = HashMaps.mix(key) & mask;
+        long slotKey;
+        while ((slotKey = keys[slot]) != EMPTY) {
+            if (slotKey == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the entry of the given key. The entries probed after it are shifted back into
+     * the freed slot, so lookups never need tombstones.
+     *
+     * @param key the key to remove
+     * @return {@code true} if the key was found and removed, {@code false} otherwise
+     */
+    public boolean remove(long key) {
+        int slot = HashMaps.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the number of entries in the map.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Collects all keys currently stored in the map.
+     *
+     * @return the keys in slot order
+     */
+    public long[] keys() {
+        long[] keyArray = new long[size];
+        int count = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                keyArray[count++] = key;
+            }
+        }
+        return keyArray;
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Empties a slot and moves every later entry of its probe run that may live there back into it.
+     *
+     * @param slot the slot to empty
+     */
+    private void shiftBack(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY) {
+                break;
+            }
+            int home = HashMaps.mix(keys[next]) & mask;
+            // The entry may move to the free slot only if its home is not cyclically in (slot, next]
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = EMPTY;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts every entry.
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = HashMaps.mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Replaces the slot arrays with empty ones.
+     *
+     * @param slots the number of slots, a power of two
+     */
+    private void allocate(int slots) {
+        keys = new long[slots];
+        Arrays.fill(keys, EMPTY);
+        values = new int[slots];
+        mask = slots - 1;
+        growAt = (int) (slots * MAX_LOAD);
+    }
+}
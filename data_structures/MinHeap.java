@@ -3,8 +3,8 @@ package data_structures;
 import java.util.Arrays;
 
 /**
- * A generic min-heap implementation with decrease-key functionality,
- * utilizing a custom HashTable for tracking element indices.
+ * A generic min-heap implementation. Elements are not indexed, so it offers no decrease-key;
+ * see {@link IndexedMinHeap} for the primitive heap used by the shortest path searches.
  *
  * @param <T> the type of elements stored in the heap; must be comparable
  */
@@ -0,0 +1,155 @@
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * A uniform bucket grid over the hidden obstacles that have not been discovered yet.
+ * The land is divided into square buckets and every bucket keeps the ids of its obstacles in a
+ * small array, so radius queries only look at the obstacles near the center instead of every cell.
+ * Buckets are allocated lazily and removal swaps the last id of the bucket into the freed slot.
+ * A {@link #copy()} shares the bucket arrays with its source and copies a bucket only when it first
+ * changes it, so every simulation can own an index without duplicating all obstacles up front.
+ */
+public class ObstacleIndex {
+    private final int height; // Number of rows of the grid, used to decode node ids
+    private final int bucketSize; // Side length of a bucket in cells
+    private final int bucketColumns; // Number of buckets along the y axis
+    private final int[][] buckets; // Obstacle ids of each bucket, null until the first insertion
+    private final int[] lengths; // Number of ids stored in each bucket
+    private final boolean[] shared; // Whether each bucket's array still belongs to the index it was copied from
+    private int size; // Number of obstacles in the index
+
+    /**
+     * Constructs an empty index for a grid of the given dimensions.
+     *
+     * @param width      the number of columns of the grid
+     * @param height     the number of rows of the grid
+     * @param bucketSize the side length of a bucket in cells
+     */
+    public ObstacleIndex(int width, int height, int bucketSize) {
+        this.height = height;
+        this.bucketSize = bucketSize;
+        this.bucketColumns = (height + bucketSize - 1) / bucketSize;
+        int bucketRows = (width + bucketSize - 1) / bucketSize;
+        this.buckets = new int[bucketRows * bucketColumns][];
+        this.lengths = new int[bucketRows * bucketColumns];
+        this.shared = new boolean[bucketRows * bucketColumns];
+    }
+
+    /**
+     * Constructs a copy of an index that shares its bucket arrays until they change.
+     *
+     * @param source the index to copy
+     */
+    private ObstacleIndex(ObstacleIndex source) {
+        this.height = source.height;
+        this.bucketSize = source.bucketSize;
+        this.bucketColumns = source.bucketColumns;
+        this.buckets = source.buckets.clone();
+        this.lengths = source.lengths.clone();
+        this.shared = new boolean[buckets.length];
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            shared[bucket] = buckets[bucket] != null;
+        }
+        this.size = source.size;
+    }
+
+    /**
+     * Creates an index with the same obstacles whose changes are not seen by this one. The copy
+     * shares this index's bucket arrays, so this index must not be changed afterwards.
+     *
+     * @return the copy
+     */
+    public ObstacleIndex copy() {
+        return new ObstacleIndex(this);
+    }
+
+    /**
+     * Adds an obstacle to the index.
+     *
+     * @param id the node id of the obstacle
+     */
+    public void add(int id) {
+        int bucket = getBucket(id / height / bucketSize, id % height / bucketSize);
+        if (buckets[bucket] == null) {
+            buckets[bucket] = new int[4];
+        } else if (lengths[bucket] == buckets[bucket].length || shared[bucket]) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], Math.max(buckets[bucket].length, 2 * lengths[bucket]));
+            shared[bucket] = false;
+        }
+        buckets[bucket][lengths[bucket]++] = id;
+        size++;
+    }
+
+    /**
+     * Removes an obstacle from the index if present.
+     *
+     * @param id the node id of the obstacle
+     * @return {@code true} if the obstacle was removed, {@code false} if it was not indexed
+     */
+    public boolean remove(int id) {
+        int bucket = getBucket(id / height / bucketSize, id % height / bucketSize);
+        int[] ids = buckets[bucket];
+        for (int i = 0; i < lengths[bucket]; i++) {
+            if (ids[i] == id) {
+                if (shared[bucket]) {
+                    ids = buckets[bucket] = ids.clone();
+                    shared[bucket] = false;
+                }
+                ids[i] = ids[--lengths[bucket]];
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the index of a bucket from its bucket coordinates.
+     *
+     * @param bucketX the bucket's position along the x axis
+     * @param bucketY the bucket's position along the y axis
+     * @return the bucket index
+     */
+    public int getBucket(int bucketX, int bucketY) {
+        return bucketX * bucketColumns + bucketY;
+    }
+
+    /**
+     * Retrieves the ids stored in a bucket. Only the first {@link #getBucketLength(int)} entries are valid,
+     * and the array is shared: removing an id moves the bucket's last id into its slot.
+     *
+     * @param bucket the bucket index
+     * @return the ids of the bucket, or {@code null} if nothing was ever added to it
+     */
+    public int[] getBucketIds(int bucket) {
+        return buckets[bucket];
+    }
+
+    /**
+     * Retrieves the number of ids stored in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the number of obstacles in the bucket
+     */
+    public int getBucketLength(int bucket) {
+        return lengths[bucket];
+    }
+
+    public int getBucketCount() {
+        return lengths.length;
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * Retrieves the number of obstacles in the index.
+     *
+     * @return the size of the index
+     */
+    public int size() {
+        return size;
+    }
+}
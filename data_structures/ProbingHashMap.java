@@ -0,0 +1,257 @@
+package data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A generic hash map using open addressing with linear probing. Keys and values live in two
+ * parallel arrays instead of a chain node per entry, and the capacity can be sized up front by the
+ * caller. Keys may not be {@code null}; an empty slot is marked by a {@code null} key.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class ProbingHashMap<K, V> {
+    private static final int DEFAULT_CAPACITY = 16; // Expected entries when no capacity is given
+    private static final double MAX_LOAD = 0.5; // Largest share of occupied slots before growing
+
+    private K[] keys; // Key of each slot, null when the slot is empty
+    private V[] values; // Value of each slot
+    private int mask; // Number of slots minus one
+    private int size; // Number of entries in the map
+    private int growAt; // Number of entries that triggers the next resize
+
+    /**
+     * Constructs an empty map with a small initial capacity.
+     */
+    public ProbingHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map that holds the given number of entries without resizing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    public ProbingHashMap(int expectedSize) {
+        allocate(HashMaps.slotsFor(expectedSize, MAX_LOAD));
+    }
+
+    /**
+     * Inserts a key-value pair, replacing the value of an existing key.
+     *
+     * @param key   the key to insert, not {@code null}
+     * @param value the value to associate with the key
+     * @return the previous value of the key, or {@code null} if it was absent
+     */
+    public V put(K key, V value) {
+        int slot = HashMaps.mix(key.hashCode()) & mask;
+        K slotKey;
+        while ((slotKey = keys[slot]) != null) {
+            if (slotKey.equals(key)) {
+                V previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > growAt) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the value associated with the given key.
+     *
+     * @param key the key to look up
+     * @return the value associated with the key, or {@code null} if the key does not exist
+     */
+    public V get(K key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    /**
+     * Retrieves the value associated with the given key, or returns the specified default value
+     * if the key does not exist in the map.
+     *
+     * @param key          the key to look up
+     * @param defaultValue the default value to return if the key does not exist
+     * @return the value associated with the key, or the default value if the key is not found
+     */
+    public V getOrDefault(K key, V defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Retrieves the value associated with the given key, or creates, stores and returns a new one
+     * if the key does not exist.
+     *
+     * @param key     the key to look up
+     * @param factory creates the value of an absent key
+     * @return the existing or newly created value
+     */
+    public V computeIfAbsent(K key, Function<K, V> factory) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+        V value = factory.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Checks if the map contains the specified key.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Removes the entry of the given key. The entries probed after it are shifted back into
+     * the freed slot, so lookups never need tombstones.
+     *
+     * @param key the key to remove
+     * @return the removed value, or {@code null} if the key did not exist
+     */
+    public V remove(K key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = values[slot];
+        shiftBack(slot);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Retrieves the number of entries in the map.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Collects all keys currently stored in the map.
+     *
+     * @return a list of the keys in slot order
+     */
+    public ArrayList<K> keys() {
+        ArrayList<K> keyList = new ArrayList<>(size);
+        for (K key : keys) {
+            if (key != null) {
+                keyList.add(key);
+            }
+        }
+        return keyList;
+    }
+
+    /**
+     * Passes every entry to the given action, in slot order, without allocating.
+     *
+     * @param action receives each key and its value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Finds the slot holding the given key.
+     *
+     * @param key the key to look for
+     * @return the slot of the key, or -1 if the key does not exist
+     */
+    private int find(K key) {
+        int slot = HashMaps.mix(key.hashCode()) & mask;
+        K slotKey;
+        while ((slotKey = keys[slot]) != null) {
+            if (slotKey.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empties a slot and moves every later entry of its probe run that may live there back into it.
+     *
+     * @param slot the slot to empty
+     */
+    private void shiftBack(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == null) {
+                break;
+            }
+            int home = HashMaps.mix(keys[next].hashCode()) & mask;
+            // The entry may move to the free slot only if its home is not cyclically in (slot, next]
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = null;
+        values[slot] = null;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts every entry.
+     */
+    private void resize() {
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = HashMaps.mix(oldKeys[i].hashCode()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Replaces the slot arrays with empty ones.
+     *
+     * @param slots the number of slots, a power of two
+     */
+    @SuppressWarnings("unchecked")
+    private void allocate(int slots) {
+        keys = (K[]) new Object[slots];
+        values = (V[]) new Object[slots];
+        mask = slots - 1;
+        growAt = (int) (slots * MAX_LOAD);
+    }
+}
@@ -0,0 +1,156 @@
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch state for shortest path searches, confined to a single thread.
+ * Distances, predecessors and settled flags are stored in primitive arrays indexed by node id.
+ * Every entry is stamped with the generation of the search that wrote it, so starting a new
+ * search only increments the generation instead of clearing the arrays.
+ */
+public class SearchContext {
+    private static final int HEAP_ARITY = 4; // Arity of the priority queue
+    private static final ThreadLocal<SearchContext> CONTEXTS = ThreadLocal.withInitial(SearchContext::new);
+    private static final ThreadLocal<SearchContext> BACKWARD_CONTEXTS = ThreadLocal.withInitial(SearchContext::new);
+
+    private double[] distances = new double[0]; // Tentative distance of each node
+    private int[] previous = new int[0]; // Predecessor of each node on its tentative path
+    private int[] reached = new int[0]; // Generation in which each node's distance was last written
+    private int[] settled = new int[0]; // Generation in which each node was last settled
+    private int generation; // Generation of the current search
+    private int settledCount; // Number of nodes settled by the current search
+    private final IndexedMinHeap heap = new IndexedMinHeap(HEAP_ARITY, 100); // Priority queue of the current search
+    private final LazyMinHeap routeHeap = new LazyMinHeap(100); // Priority queue of the current route search
+
+    /**
+     * Retrieves the search context of the calling thread, prepared for a new search
+     * over a graph with the given number of nodes.
+     *
+     * @param nodeCount the number of node ids of the graph
+     * @return the calling thread's search context
+     */
+    public static SearchContext get(int nodeCount) {
+        SearchContext context = CONTEXTS.get();
+        context.reset(nodeCount);
+        return context;
+    }
+
+    /**
+     * Retrieves a second search context of the calling thread, for the backward half of a
+     * bidirectional search, prepared for a new search over a graph with the given number of nodes.
+     *
+     * @param nodeCount the number of node ids of the graph
+     * @return the calling thread's backward search context
+     */
+    public static SearchContext getBackward(int nodeCount) {
+        SearchContext context = BACKWARD_CONTEXTS.get();
+        context.reset(nodeCount);
+        return context;
+    }
+
+    /**
+     * Prepares the context for a new search, growing its arrays if needed.
+     *
+     * @param nodeCount the number of node ids of the graph
+     */
+    public void reset(int nodeCount) {
+        if (distances.length < nodeCount) {
+            distances = new double[nodeCount];
+            previous = new int[nodeCount];
+            reached = new int[nodeCount];
+            settled = new int[nodeCount];
+            generation = 0;
+        }
+        heap.ensureIdCapacity(nodeCount);
+        if (++generation == Integer.MAX_VALUE) {
+            // Wrap around the stamps once every generation has been used
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            generation = 1;
+        }
+        heap.clear();
+        routeHeap.clear();
+        settledCount = 0;
+    }
+
+    /**
+     * Retrieves the tentative distance of a node in the current search.
+     *
+     * @param id the node id
+     * @return the distance, or {@code Double.MAX_VALUE} if the node has not been reached
+     */
+    public double getDistance(int id) {
+        return reached[id] == generation ? distances[id] : Double.MAX_VALUE;
+    }
+
+    /**
+     * Records a new tentative distance and predecessor for a node.
+     *
+     * @param id       the node id
+     * @param distance the new distance
+     * @param previous the predecessor node id, or -1 for the source
+     */
+    public void setDistance(int id, double distance, int previous) {
+        this.distances[id] = distance;
+        this.previous[id] = previous;
+        this.reached[id] = generation;
+    }
+
+    /**
+     * Retrieves the predecessor of a reached node in the current search.
+     *
+     * @param id the node id
+     * @return the predecessor node id, or -1 for the source
+     */
+    public int getPrevious(int id) {
+        return previous[id];
+    }
+
+    /**
+     * Checks whether a node has been settled in the current search.
+     *
+     * @param id the node id
+     * @return {@code true} if the node is settled, {@code false} otherwise
+     */
+    public boolean isSettled(int id) {
+        return settled[id] == generation;
+    }
+
+    /**
+     * Marks a node as settled in the current search.
+     *
+     * @param id the node id
+     */
+    public void settle(int id) {
+        settled[id] = generation;
+        settledCount++;
+    }
+
+    /**
+     * Retrieves the number of nodes settled so far by the current search.
+     *
+     * @return the settled node count
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Retrieves the priority queue of the current search. It is emptied by {@link #reset(int)}.
+     *
+     * @return the priority queue
+     */
+    public IndexedMinHeap getHeap() {
+        return heap;
+    }
+
+    /**
+     * Retrieves the priority queue of a route search, which settles nodes with equal distances in
+     * the same order as {@link MinHeap}. It is emptied by {@link #reset(int)}.
+     *
+     * @return the route priority queue
+     */
+    public LazyMinHeap getRouteHeap() {
+        return routeHeap;
+    }
+}
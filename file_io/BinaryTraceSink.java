@@ -0,0 +1,86 @@
+package file_io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the wizard's actions as a compact binary trace, which {@link TraceDecoder} turns back into
+ * the text log. Every record starts with an opcode byte. A step to one of the eight neighbours of the
+ * previous position fits in that byte alone; other moves follow it with the coordinate deltas, and
+ * objective numbers and choices follow it with their value, all as zigzag varints.
+ */
+public class BinaryTraceSink extends TraceSink {
+    static final int MAGIC = 0x5457495A; // "ZIWT" when read as big-endian bytes, marks a binary trace
+    static final byte VERSION = 1; // Incremented whenever the encoding changes
+    static final byte MOVE = 0; // A move followed by the x and y deltas
+    static final byte IMPASSABLE = 1; // The path was blocked
+    static final byte OBJECTIVE = 2; // An objective was reached, followed by its number
+    static final byte CHOICE = 3; // An option was chosen, followed by the node type
+    static final byte STEP = 4; // First of nine opcodes encoding a move by (dx, dy) in [-1, 1]^2 as STEP + 3 * (dx + 1) + dy + 1
+    private static final int MAX_RECORD_BYTES = 1 + 2 * 5; // Opcode and two varints
+
+    private int xCoordinate; // x-coordinate of the previous move
+    private int yCoordinate; // y-coordinate of the previous move
+
+    /**
+     * Constructs a binary sink writing to the given file.
+     *
+     * @param file the trace file
+     * @throws IOException if the file cannot be opened
+     */
+    public BinaryTraceSink(File file) throws IOException {
+        super(file);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+    }
+
+    @Override
+    public void moveTo(int xCoordinate, int yCoordinate) throws IOException {
+        ensureRemaining(MAX_RECORD_BYTES);
+        int dx = xCoordinate - this.xCoordinate;
+        int dy = yCoordinate - this.yCoordinate;
+        if (Math.abs(dx) <= 1 && Math.abs(dy) <= 1) {
+            buffer.put((byte) (STEP + 3 * (dx + 1) + dy + 1));
+        } else {
+            buffer.put(MOVE);
+            putVarint(dx);
+            putVarint(dy);
+        }
+        this.xCoordinate = xCoordinate;
+        this.yCoordinate = yCoordinate;
+    }
+
+    @Override
+    public void pathImpassable() throws IOException {
+        ensureRemaining(MAX_RECORD_BYTES);
+        buffer.put(IMPASSABLE);
+    }
+
+    @Override
+    public void objectiveReached(int objectiveCount) throws IOException {
+        ensureRemaining(MAX_RECORD_BYTES);
+        buffer.put(OBJECTIVE);
+        putVarint(objectiveCount);
+    }
+
+    @Override
+    public void choiceMade(int choice) throws IOException {
+        ensureRemaining(MAX_RECORD_BYTES);
+        buffer.put(CHOICE);
+        putVarint(choice);
+    }
+
+    /**
+     * Writes a signed int as a zigzag-encoded varint of seven bits per byte.
+     *
+     * @param value the value to write
+     */
+    private void putVarint(int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+}
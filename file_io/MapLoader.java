@@ -0,0 +1,387 @@
+package file_io;
+
+import data_structures.IntHashMap;
+import models.Graph;
+import models.GraphBuilder;
+import models.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Loads the nodes and edges files into the land grid and the compressed graph.
+ * The files are memory-mapped and numbers are parsed straight from the mapped bytes, without
+ * creating a String per line or token. Large files are cut into chunks at line boundaries and
+ * the chunks are parsed in parallel; their results are then appended in file order, so the loaded
+ * map is identical to one read line by line.
+ */
+public class MapLoader {
+    private static final int CHUNK_SIZE = 16 << 20; // Nominal number of bytes parsed by one task
+
+    private Node[][] land = new Node[0][0]; // The grid of nodes
+    private GraphBuilder graphBuilder; // Collects nodes and edges until the graph is built
+    private final IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType = new IntHashMap<>(); // Nodes grouped by type
+
+    /**
+     * Processes the nodes file to create the land matrix. The first line gives the grid size and
+     * every other line gives the coordinates and type of one node.
+     *
+     * @param nodes the nodes file
+     * @throws IOException if the file cannot be read
+     */
+    public void loadNodes(File nodes) throws IOException {
+        try (FileChannel channel = FileChannel.open(nodes.toPath(), StandardOpenOption.READ)) {
+            // First line specifies the size of the grid.
+            long headerEnd = nextLineStart(channel, 0);
+            Cursor header = new Cursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd));
+            int xAxis = header.readInt();
+            int yAxis = header.readInt();
+            land = new Node[xAxis][yAxis];
+            graphBuilder = new GraphBuilder(xAxis, yAxis);
+
+            // Remaining lines specify node properties.
+            for (IntBlock block : parseChunks(channel, headerEnd, MapLoader::parseNodes)) {
+                int[] values = block.values;
+                for (int i = 0; i < block.count; i += 3) {
+                    Node node = new Node(values[i], values[i + 1], values[i + 2]);
+
+                    // If node type >= 2, store it in the hash map
+                    // in order to adjust them efficiently after wizard's help.
+                    if (node.getNodeType() > 1) {
+                        ArrayList<Node> nodesList = nodesWithTwoOrMoreType.computeIfAbsent(node.getNodeType(), type -> new ArrayList<>());
+                        nodesList.add(node);
+                    }
+                    land[node.getxCoordinate()][node.getyCoordinate()] = node;
+                    graphBuilder.addNode(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the edges file to establish connections between nodes, and compiles the graph.
+     * Must be called after {@link #loadNodes(File)}.
+     *
+     * @param edges the edges file
+     * @return the compressed graph of the land
+     * @throws IOException if the file cannot be read
+     */
+    public Graph loadEdges(File edges) throws IOException {
+        try (FileChannel channel = FileChannel.open(edges.toPath(), StandardOpenOption.READ)) {
+            int height = land.length == 0 ? 0 : land[0].length;
+            for (IntBlock block : parseChunks(channel, 0, MapLoader::parseEdges)) {
+                int[] values = block.values;
+                for (int i = 0; i < block.count; i += 6) {
+                    Node node1 = land[values[i]][values[i + 1]];
+                    Node node2 = land[values[i + 2]][values[i + 3]];
+                    double travelTime = Double.longBitsToDouble(((long) values[i + 4] << 32) | (values[i + 5] & 0xFFFFFFFFL));
+
+                    // Make travel time between nodes infinite if either one of them is of type 1 (impassable).
+                    if (node1.getNodeType() == 1 || node2.getNodeType() == 1) {
+                        travelTime = Double.MAX_VALUE;
+                    }
+
+                    // Establish bidirectional edges between nodes.
+                    int id1 = values[i] * height + values[i + 1];
+                    int id2 = values[i + 2] * height + values[i + 3];
+                    graphBuilder.addEdge(id1, id2, travelTime);
+                    graphBuilder.addEdge(id2, id1, travelTime);
+                }
+            }
+        }
+        return graphBuilder.build();
+    }
+
+    /**
+     * Retrieves the grid of loaded nodes.
+     *
+     * @return the land matrix indexed by x and y coordinates
+     */
+    public Node[][] getLand() {
+        return land;
+    }
+
+    /**
+     * Retrieves the loaded nodes of type 2 or more, grouped by type.
+     *
+     * @return a hash table of nodes grouped by type
+     */
+    public IntHashMap<ArrayList<Node>> getNodesWithTwoOrMoreType() {
+        return nodesWithTwoOrMoreType;
+    }
+
+    /**
+     * Parses node lines ("X Y Type") into triples of ints.
+     *
+     * @param cursor the bytes of the chunk
+     * @param block  the block receiving the values
+     */
+    private static void parseNodes(Cursor cursor, IntBlock block) {
+        while (cursor.skipBlankLines()) {
+            block.add(cursor.readInt());
+            block.add(cursor.readInt());
+            block.add(cursor.readInt());
+            cursor.skipLine();
+        }
+    }
+
+    /**
+     * Parses edge lines ("X1-Y1,X2-Y2 TravelTime") into four coordinates and the two halves of the
+     * travel time's bits.
+     *
+     * @param cursor the bytes of the chunk
+     * @param block  the block receiving the values
+     */
+    private static void parseEdges(Cursor cursor, IntBlock block) {
+        while (cursor.skipBlankLines()) {
+            block.add(cursor.readInt());
+            cursor.expect('-');
+            block.add(cursor.readInt());
+            cursor.expect(',');
+            block.add(cursor.readInt());
+            cursor.expect('-');
+            block.add(cursor.readInt());
+            long bits = Double.doubleToRawLongBits(cursor.readDouble());
+            block.add((int) (bits >>> 32));
+            block.add((int) bits);
+            cursor.skipLine();
+        }
+    }
+
+    /**
+     * Cuts the file after the given offset into chunks ending at line boundaries and parses them in parallel.
+     *
+     * @param channel the open file
+     * @param from    the offset of the first byte to parse
+     * @param parser  the parser applied to every chunk
+     * @return the parsed blocks in file order
+     * @throws IOException if the file cannot be read
+     */
+    private static IntBlock[] parseChunks(FileChannel channel, long from, ChunkParser parser) throws IOException {
+        long size = channel.size();
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(from);
+        for (long position = from + CHUNK_SIZE; position < size; position += CHUNK_SIZE) {
+            long boundary = nextLineStart(channel, Math.max(position, boundaries.get(boundaries.size() - 1)));
+            if (boundary >= size) break;
+            boundaries.add(boundary);
+        }
+        boundaries.add(size);
+
+        // Map every chunk separately so that files larger than 2 GB are supported
+        MappedByteBuffer[] chunks = new MappedByteBuffer[boundaries.size() - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, boundaries.get(i),
+                    boundaries.get(i + 1) - boundaries.get(i));
+        }
+        return IntStream.range(0, chunks.length).parallel().mapToObj(i -> {
+            IntBlock block = new IntBlock();
+            parser.parse(new Cursor(chunks[i]), block);
+            return block;
+        }).toArray(IntBlock[]::new);
+    }
+
+    /**
+     * Finds the offset of the first line starting at or after the given position,
+     * i.e. the byte after the next newline.
+     *
+     * @param channel  the open file
+     * @param position the position to search from
+     * @return the offset of the next line, or the file size if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Parses the lines of one chunk into a block.
+     */
+    private interface ChunkParser {
+        /**
+         * Parses every line of the chunk.
+         *
+         * @param cursor the bytes of the chunk
+         * @param block  the block receiving the values
+         */
+        void parse(Cursor cursor, IntBlock block);
+    }
+
+    /**
+     * A growable array of the ints parsed from one chunk.
+     */
+    private static class IntBlock {
+        int[] values = new int[1024]; // Parsed values in file order
+        int count; // Number of parsed values
+
+        /**
+         * Appends a value, growing the array when it is full.
+         *
+         * @param value the parsed value
+         */
+        void add(int value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            values[count++] = value;
+        }
+    }
+
+    /**
+     * Reads numbers directly from the bytes of a mapped chunk.
+     */
+    private static class Cursor {
+        private static final double[] POWERS_OF_TEN = {
+                1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        }; // Powers of ten that are exact doubles
+        private static final int MAX_EXACT_DIGITS = 15; // Digits that always fit exactly in a double's mantissa
+
+        private final ByteBuffer buffer; // The chunk's bytes
+        private final int limit; // Number of bytes in the chunk
+        private int position; // Offset of the next unread byte
+
+        /**
+         * Constructs a cursor at the start of the given bytes.
+         *
+         * @param buffer the chunk's bytes
+         */
+        Cursor(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+        }
+
+        /**
+         * Skips empty lines and reports whether another line follows.
+         *
+         * @return {@code true} if there is a line left to read
+         */
+        boolean skipBlankLines() {
+            while (position < limit && isWhitespace(buffer.get(position))) {
+                position++;
+            }
+            return position < limit;
+        }
+
+        /**
+         * Skips the rest of the current line, including its newline.
+         */
+        void skipLine() {
+            while (position < limit && buffer.get(position++) != '\n') {
+                // Advance to the next line
+            }
+        }
+
+        /**
+         * Consumes the given separator.
+         *
+         * @param separator the expected byte
+         */
+        void expect(char separator) {
+            if (position >= limit || buffer.get(position) != separator) {
+                throw new NumberFormatException("Expected '" + separator + "' at byte " + position);
+            }
+            position++;
+        }
+
+        /**
+         * Reads a decimal integer, skipping the spaces in front of it.
+         *
+         * @return the parsed integer
+         */
+        int readInt() {
+            skipSpaces();
+            boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative) position++;
+            int start = position;
+            int value = 0;
+            while (position < limit && isDigit(buffer.get(position))) {
+                value = Math.addExact(Math.multiplyExact(value, 10), buffer.get(position++) - '0');
+            }
+            if (position == start) {
+                throw new NumberFormatException("Expected a number at byte " + position);
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Reads a decimal number, skipping the spaces in front of it. Plain numbers with at most
+         * {@value #MAX_EXACT_DIGITS} digits are computed as one exact mantissa divided by one exact
+         * power of ten, which is correctly rounded; anything else falls back to {@link Double#parseDouble}.
+         * Either way the result equals {@code Double.parseDouble} of the token.
+         *
+         * @return the parsed number
+         */
+        double readDouble() {
+            skipSpaces();
+            int start = position;
+            boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative || (position < limit && buffer.get(position) == '+')) position++;
+
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean inFraction = false;
+            boolean exact = true;
+            while (position < limit) {
+                byte current = buffer.get(position);
+                if (isDigit(current)) {
+                    if (mantissa != 0 || current != '0') digits++;
+                    mantissa = digits <= MAX_EXACT_DIGITS ? mantissa * 10 + (current - '0') : mantissa;
+                    if (inFraction) fractionDigits++;
+                } else if (current == '.' && !inFraction) {
+                    inFraction = true;
+                } else if (isWhitespace(current)) {
+                    break;
+                } else {
+                    exact = false; // Exponents and special values take the general path
+                }
+                position++;
+            }
+            if (exact && digits <= MAX_EXACT_DIGITS && fractionDigits < POWERS_OF_TEN.length && position > start) {
+                double value = mantissa / POWERS_OF_TEN[fractionDigits];
+                return negative ? -value : value;
+            }
+            byte[] token = new byte[position - start];
+            for (int i = 0; i < token.length; i++) {
+                token[i] = buffer.get(start + i);
+            }
+            return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+        }
+
+        private void skipSpaces() {
+            while (position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+                position++;
+            }
+        }
+
+        private static boolean isDigit(byte value) {
+            return value >= '0' && value <= '9';
+        }
+
+        private static boolean isWhitespace(byte value) {
+            return value == ' ' || value == '\t' || value == '\r' || value == '\n';
+        }
+    }
+}
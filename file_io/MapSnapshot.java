@@ -0,0 +1,415 @@
+package file_io;
+
+import data_structures.IntHashMap;
+import data_structures.IntList;
+import data_structures.ObstacleIndex;
+import models.DistanceMetric;
+import models.Graph;
+import models.GraphBuilder;
+import models.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32C;
+
+/**
+ * A versioned, checksummed binary snapshot of a compiled map, so that a nodes and edges pair only
+ * has to be parsed once for many objective files. The snapshot holds the grid dimensions, the node
+ * types, the compressed adjacency with travel times, the hidden obstacle index and the nodes grouped
+ * by type; loading it memory-maps the file and copies every section into its array in bulk.
+ *
+ * <p>Layout, little-endian: a header of magic, version, payload length and CRC-32C of the payload,
+ * followed by the payload sections width, height, edge count, the minimum travel times per unit,
+ * the cell types (-1 for cells without a node), offsets, targets, weights, the hidden obstacle ids
+ * in bucket order and finally the nodes of each type in their original order.
+ */
+public class MapSnapshot {
+    private static final int MAGIC = 0x4D5A4957; // "WIZM" when read as little-endian bytes
+    private static final int VERSION = 1; // Incremented whenever the layout changes
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES; // Magic, version, length, checksum
+    private static final int BUFFER_BYTES = 1 << 20; // Size of the write buffer
+    private static final int MAX_WINDOW_BYTES = 1 << 30; // Largest region mapped at once while reading
+
+    private final Node[][] land; // The grid of nodes
+    private final Graph graph; // The compressed graph of the land
+    private final IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType; // Nodes grouped by type
+
+    /**
+     * Constructs a loaded snapshot.
+     *
+     * @param land                   the grid of nodes
+     * @param graph                  the compressed graph of the land
+     * @param nodesWithTwoOrMoreType the nodes grouped by type
+     */
+    private MapSnapshot(Node[][] land, Graph graph, IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType) {
+        this.land = land;
+        this.graph = graph;
+        this.nodesWithTwoOrMoreType = nodesWithTwoOrMoreType;
+    }
+
+    public Node[][] getLand() {
+        return land;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public IntHashMap<ArrayList<Node>> getNodesWithTwoOrMoreType() {
+        return nodesWithTwoOrMoreType;
+    }
+
+    /**
+     * Writes a freshly loaded map to a snapshot file. The graph must not have been explored yet,
+     * since discoveries are not part of the snapshot.
+     *
+     * @param snapshot               the file to write
+     * @param graph                  the compressed graph of the land
+     * @param nodesWithTwoOrMoreType the nodes grouped by type
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(File snapshot, Graph graph, IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output output = new Output(channel, HEADER_BYTES);
+            int nodeCount = graph.getNodeCount();
+            output.putInt(graph.getWidth());
+            output.putInt(graph.getHeight());
+            output.putInt(graph.getEdgeCount());
+
+            DistanceMetric[] metrics = DistanceMetric.values();
+            output.putInt(metrics.length);
+            for (DistanceMetric metric : metrics) {
+                output.putDouble(graph.getMinTravelTimePerUnit(metric));
+            }
+            for (int id = 0; id < nodeCount; id++) {
+                output.putInt(graph.getNode(id) == null ? -1 : graph.getNodeType(id));
+            }
+            for (int offset : graph.getOffsets()) {
+                output.putInt(offset);
+            }
+            for (int target : graph.getTargets()) {
+                output.putInt(target);
+            }
+            for (double weight : graph.getWeights()) {
+                output.putDouble(weight);
+            }
+
+            // Hidden obstacles bucket by bucket, so the restored buckets list them in the same order
+            ObstacleIndex hiddenObstacles = graph.getHiddenObstacles();
+            output.putInt(hiddenObstacles.size());
+            for (int bucket = 0; bucket < hiddenObstacles.getBucketCount(); bucket++) {
+                for (int k = 0; k < hiddenObstacles.getBucketLength(bucket); k++) {
+                    output.putInt(hiddenObstacles.getBucketIds(bucket)[k]);
+                }
+            }
+
+            IntList types = nodesWithTwoOrMoreType.keys();
+            output.putInt(types.size());
+            for (int i = 0; i < types.size(); i++) {
+                int type = types.get(i);
+                ArrayList<Node> nodesList = nodesWithTwoOrMoreType.get(type);
+                output.putInt(type);
+                output.putInt(nodesList.size());
+                for (Node node : nodesList) {
+                    output.putInt(graph.getNodeId(node));
+                }
+            }
+            long payloadBytes = output.finish();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(payloadBytes).putLong(output.checksum.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * Loads a snapshot file, verifying its version and checksum before parsing it, then the range of
+     * every count and id it holds.
+     *
+     * @param snapshot the file to read
+     * @return the loaded map
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MapSnapshot read(File snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a map snapshot: " + snapshot);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a map snapshot: " + snapshot);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported map snapshot version " + version + ", expected " + VERSION);
+            }
+            long payloadBytes = header.getLong();
+            long expectedChecksum = header.getLong();
+            if (channel.size() != HEADER_BYTES + payloadBytes) {
+                throw new IOException("Truncated map snapshot: " + snapshot);
+            }
+
+            // Verify the whole payload before trusting any count or id read from it
+            CRC32C checksum = new CRC32C();
+            for (long position = HEADER_BYTES; position < channel.size(); position += MAX_WINDOW_BYTES) {
+                long length = Math.min(channel.size() - position, MAX_WINDOW_BYTES);
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+            if (checksum.getValue() != expectedChecksum) {
+                throw new IOException("Corrupt map snapshot, checksum mismatch: " + snapshot);
+            }
+
+            // Every count is bounded by the bytes left in the payload, and every id by the node count
+            Input input = new Input(snapshot, channel, HEADER_BYTES);
+            int width = checkRange(input.getInt(), 1, Integer.MAX_VALUE, "width", snapshot);
+            int height = checkRange(input.getInt(), 1, Integer.MAX_VALUE, "height", snapshot);
+            int edgeCount = input.getInt();
+            int nodeCount = checkRange((long) width * height, 1, Integer.MAX_VALUE - 1, "grid dimensions", snapshot);
+            int metricCount = DistanceMetric.values().length;
+            double[] minTravelTimesPerUnit = input.getDoubles(
+                    checkRange(input.getInt(), metricCount, metricCount, "metric count", snapshot));
+            int[] nodeTypes = input.getInts(nodeCount);
+            int[] offsets = input.getInts(nodeCount + 1);
+            int[] targets = input.getInts(edgeCount);
+            double[] weights = input.getDoubles(edgeCount);
+            int[] hiddenObstacleIds = input.getInts(input.getInt());
+
+            // The adjacency must be a valid compressed row layout over the node ids
+            checkRange(offsets[0], 0, 0, "offsets", snapshot);
+            for (int id = 0; id < nodeCount; id++) {
+                checkRange(offsets[id + 1], offsets[id], edgeCount, "offsets", snapshot);
+            }
+            checkRange(offsets[nodeCount], edgeCount, edgeCount, "offsets", snapshot);
+            for (int target : targets) {
+                checkRange(target, 0, nodeCount - 1L, "edge target", snapshot);
+            }
+
+            // Recreate the node objects for the cells that have one
+            Node[][] land = new Node[width][height];
+            Node[] nodes = new Node[nodeCount];
+            for (int id = 0; id < nodeCount; id++) {
+                if (checkRange(nodeTypes[id], -1, Integer.MAX_VALUE, "node type", snapshot) < 0) {
+                    nodeTypes[id] = 0;
+                    continue;
+                }
+                Node node = new Node(id / height, id % height, nodeTypes[id]);
+                land[node.getxCoordinate()][node.getyCoordinate()] = node;
+                nodes[id] = node;
+            }
+            for (int id : hiddenObstacleIds) {
+                checkNode(nodes, id, "hidden obstacle", snapshot);
+            }
+
+            IntHashMap<ArrayList<Node>> nodesWithTwoOrMoreType = new IntHashMap<>();
+            int typeCount = input.getInt();
+            for (int i = 0; i < typeCount; i++) {
+                ArrayList<Node> nodesList = nodesWithTwoOrMoreType.computeIfAbsent(input.getInt(), type -> new ArrayList<>());
+                for (int id : input.getInts(input.getInt())) {
+                    nodesList.add(checkNode(nodes, id, "typed node", snapshot));
+                }
+            }
+
+            Graph graph = GraphBuilder.restore(width, height, offsets, targets, weights, nodeTypes, nodes,
+                    minTravelTimesPerUnit, hiddenObstacleIds);
+            return new MapSnapshot(land, graph, nodesWithTwoOrMoreType);
+        }
+    }
+
+    /**
+     * Checks that a value read from a snapshot lies within the given bounds.
+     *
+     * @param value    the value read
+     * @param min      the smallest valid value
+     * @param max      the largest valid value
+     * @param what     the name of the value in the error message
+     * @param snapshot the file being read
+     * @return the value as an int
+     * @throws IOException if the value is out of bounds
+     */
+    private static int checkRange(long value, long min, long max, String what, File snapshot) throws IOException {
+        if (value < min || value > max) {
+            throw new IOException("Corrupt map snapshot, " + what + " out of range: " + snapshot);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Checks that an id read from a snapshot belongs to a cell that has a node.
+     *
+     * @param nodes    the nodes indexed by id
+     * @param id       the id read
+     * @param what     the name of the id in the error message
+     * @param snapshot the file being read
+     * @return the node with the id
+     * @throws IOException if the id is out of range or its cell has no node
+     */
+    private static Node checkNode(Node[] nodes, int id, String what, File snapshot) throws IOException {
+        if (id < 0 || id >= nodes.length || nodes[id] == null) {
+            throw new IOException("Corrupt map snapshot, " + what + " out of range: " + snapshot);
+        }
+        return nodes[id];
+    }
+
+    /**
+     * Buffers the payload and writes it to the channel, checksumming it on the way.
+     */
+    private static class Output {
+        final CRC32C checksum = new CRC32C(); // Checksum of the bytes written so far
+        private final FileChannel channel; // The file being written
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long position; // File offset the buffer is flushed to
+        private long written; // Number of payload bytes flushed so far
+
+        /**
+         * Constructs an output writing from the given file offset.
+         *
+         * @param channel  the file being written
+         * @param position the offset of the payload
+         */
+        Output(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureRemaining(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        /**
+         * Flushes the remaining bytes.
+         *
+         * @return the total number of payload bytes
+         * @throws IOException if the file cannot be written
+         */
+        long finish() throws IOException {
+            flush();
+            return written;
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                int count = channel.write(buffer, position);
+                position += count;
+                written += count;
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads the payload through memory-mapped windows.
+     */
+    private static class Input {
+        private final File snapshot; // The file being read, named in error messages
+        private final FileChannel channel; // The channel of the file
+        private long position; // File offset of the next unread byte
+
+        /**
+         * Constructs an input reading from the given file offset.
+         *
+         * @param snapshot the file being read
+         * @param channel  the channel of the file
+         * @param position the offset of the payload
+         */
+        Input(File snapshot, FileChannel channel, long position) {
+            this.snapshot = snapshot;
+            this.channel = channel;
+            this.position = position;
+        }
+
+        int getInt() throws IOException {
+            return map(Integer.BYTES).getInt(0);
+        }
+
+        /**
+         * Reads an array of ints, mapping at most {@value #MAX_WINDOW_BYTES} bytes at a time.
+         *
+         * @param count the number of values
+         * @return the values
+         * @throws IOException if the file cannot be read or holds fewer values
+         */
+        int[] getInts(int count) throws IOException {
+            checkCount(count, Integer.BYTES);
+            int[] values = new int[count];
+            for (int done = 0; done < count; ) {
+                int length = Math.min(count - done, MAX_WINDOW_BYTES / Integer.BYTES);
+                map((long) length * Integer.BYTES).asIntBuffer().get(values, done, length);
+                done += length;
+            }
+            return values;
+        }
+
+        /**
+         * Reads an array of doubles, mapping at most {@value #MAX_WINDOW_BYTES} bytes at a time.
+         *
+         * @param count the number of values
+         * @return the values
+         * @throws IOException if the file cannot be read or holds fewer values
+         */
+        double[] getDoubles(int count) throws IOException {
+            checkCount(count, Double.BYTES);
+            double[] values = new double[count];
+            for (int done = 0; done < count; ) {
+                int length = Math.min(count - done, MAX_WINDOW_BYTES / Double.BYTES);
+                map((long) length * Double.BYTES).asDoubleBuffer().get(values, done, length);
+                done += length;
+            }
+            return values;
+        }
+
+        /**
+         * Checks that an array length read from the payload fits in the bytes left, before the array
+         * is allocated.
+         *
+         * @param count the number of values
+         * @param bytes the size of one value
+         * @throws IOException if the count is negative or exceeds the remaining payload
+         */
+        private void checkCount(int count, int bytes) throws IOException {
+            if (count < 0 || (long) count * bytes > channel.size() - position) {
+                throw new IOException("Corrupt map snapshot, count out of range: " + snapshot);
+            }
+        }
+
+        /**
+         * Maps the next bytes of the payload.
+         *
+         * @param bytes the number of bytes
+         * @return the mapped little-endian window
+         * @throws IOException if the file cannot be read or ends early
+         */
+        private ByteBuffer map(long bytes) throws IOException {
+            if (position + bytes > channel.size()) {
+                throw new IOException("Truncated map snapshot");
+            }
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            position += bytes;
+            return window;
+        }
+    }
+}
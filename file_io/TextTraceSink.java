@@ -0,0 +1,85 @@
+package file_io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the wizard's actions as the readable text log. Integers are formatted straight into the
+ * output buffer, so the lines match {@code String.format} without allocating per line.
+ */
+public class TextTraceSink extends TraceSink {
+    private static final byte[] MOVING_TO = ascii("Moving to ");
+    private static final byte[] IMPASSABLE = ascii("Path is impassable!\n");
+    private static final byte[] OBJECTIVE = ascii("Objective ");
+    private static final byte[] REACHED = ascii(" reached!\n");
+    private static final byte[] NUMBER = ascii("Number ");
+    private static final byte[] CHOSEN = ascii(" is chosen!\n");
+    private static final int MAX_LINE_BYTES = 64; // Longest line, two ints with their text included
+
+    private final byte[] digits = new byte[11]; // Scratch space for formatting an int backwards
+
+    /**
+     * Constructs a text sink writing to the given file.
+     *
+     * @param file the output file
+     * @throws IOException if the file cannot be opened
+     */
+    public TextTraceSink(File file) throws IOException {
+        super(file);
+    }
+
+    @Override
+    public void moveTo(int xCoordinate, int yCoordinate) throws IOException {
+        ensureRemaining(MAX_LINE_BYTES);
+        buffer.put(MOVING_TO);
+        putInt(xCoordinate);
+        buffer.put((byte) '-');
+        putInt(yCoordinate);
+        buffer.put((byte) '\n');
+    }
+
+    @Override
+    public void pathImpassable() throws IOException {
+        ensureRemaining(MAX_LINE_BYTES);
+        buffer.put(IMPASSABLE);
+    }
+
+    @Override
+    public void objectiveReached(int objectiveCount) throws IOException {
+        ensureRemaining(MAX_LINE_BYTES);
+        buffer.put(OBJECTIVE);
+        putInt(objectiveCount);
+        buffer.put(REACHED);
+    }
+
+    @Override
+    public void choiceMade(int choice) throws IOException {
+        ensureRemaining(MAX_LINE_BYTES);
+        buffer.put(NUMBER);
+        putInt(choice);
+        buffer.put(CHOSEN);
+    }
+
+    /**
+     * Formats an int in decimal into the buffer.
+     *
+     * @param value the value to format
+     */
+    private void putInt(int value) {
+        long remaining = Math.abs((long) value);
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
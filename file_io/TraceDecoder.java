@@ -0,0 +1,103 @@
+package file_io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Turns a binary trace written by {@link BinaryTraceSink} back into the text log, byte for byte
+ * what a {@link TextTraceSink} would have written during the run.
+ * Usage: {@code java file_io.TraceDecoder trace.bin output.txt}
+ */
+public class TraceDecoder {
+
+    /**
+     * Decodes the trace named by the first argument into the text file named by the second.
+     *
+     * @param args the binary trace and the text output file
+     * @throws IOException if a file cannot be read or written, or the trace is malformed
+     */
+    public static void main(String[] args) throws IOException {
+        try (TraceSink sink = new TextTraceSink(new File(args[1]))) {
+            decode(new File(args[0]), sink);
+        }
+    }
+
+    /**
+     * Replays every record of a binary trace into the given sink.
+     *
+     * @param trace the binary trace file
+     * @param sink  the sink receiving the records
+     * @throws IOException if the trace cannot be read or is malformed
+     */
+    public static void decode(File trace, TraceSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(trace.toPath(), StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            int xCoordinate = 0;
+            int yCoordinate = 0;
+
+            // Map the trace in windows, each ending on a record boundary the previous window reached
+            while (position < size) {
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, Integer.MAX_VALUE));
+                if (position == 0) {
+                    if (window.remaining() < 5 || window.getInt() != BinaryTraceSink.MAGIC) {
+                        throw new IOException("Not a binary trace: " + trace);
+                    }
+                    byte version = window.get();
+                    if (version != BinaryTraceSink.VERSION) {
+                        throw new IOException("Unsupported trace version " + version);
+                    }
+                }
+                int recordStart = window.position();
+                // Stop a few bytes early unless this is the last window, so no record is cut in half
+                int safeLimit = position + window.limit() == size ? window.limit() : window.limit() - 16;
+                while (window.position() < safeLimit) {
+                    recordStart = window.position();
+                    byte opcode = window.get();
+                    if (opcode >= BinaryTraceSink.STEP) {
+                        int step = opcode - BinaryTraceSink.STEP;
+                        xCoordinate += step / 3 - 1;
+                        yCoordinate += step % 3 - 1;
+                        sink.moveTo(xCoordinate, yCoordinate);
+                    } else if (opcode == BinaryTraceSink.MOVE) {
+                        xCoordinate += getVarint(window);
+                        yCoordinate += getVarint(window);
+                        sink.moveTo(xCoordinate, yCoordinate);
+                    } else if (opcode == BinaryTraceSink.IMPASSABLE) {
+                        sink.pathImpassable();
+                    } else if (opcode == BinaryTraceSink.OBJECTIVE) {
+                        sink.objectiveReached(getVarint(window));
+                    } else if (opcode == BinaryTraceSink.CHOICE) {
+                        sink.choiceMade(getVarint(window));
+                    } else {
+                        throw new IOException("Unknown trace opcode " + opcode + " at byte " + (position + recordStart));
+                    }
+                }
+                position += window.position();
+            }
+        }
+    }
+
+    /**
+     * Reads a zigzag-encoded varint.
+     *
+     * @param window the bytes of the trace
+     * @return the decoded value
+     * @throws IOException if the varint does not end within five bytes
+     */
+    private static int getVarint(ByteBuffer window) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte current = window.get();
+            zigzag |= (current & 0x7F) << shift;
+            if (current >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed varint in trace");
+    }
+}
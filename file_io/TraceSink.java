@@ -0,0 +1,112 @@
+package file_io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A destination for the wizard's actions. Records are encoded into a reusable byte buffer and
+ * written through a {@link FileChannel}, so logging a step allocates nothing.
+ */
+public abstract class TraceSink implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 16; // Size of the output buffer
+
+    protected final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES); // Encoded records not yet written
+    private final FileChannel channel; // The trace file
+
+    /**
+     * Constructs a sink writing to the given file, replacing its contents.
+     *
+     * @param file the trace file
+     * @throws IOException if the file cannot be opened
+     */
+    protected TraceSink(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens a sink of the given format.
+     *
+     * @param file   the trace file
+     * @param format {@code text} for the readable log or {@code binary} for the compact trace
+     * @return the opened sink
+     * @throws IOException if the file cannot be opened
+     */
+    public static TraceSink open(File file, String format) throws IOException {
+        switch (format) {
+            case "text":
+                return new TextTraceSink(file);
+            case "binary":
+                return new BinaryTraceSink(file);
+            default:
+                throw new IllegalArgumentException("Unknown trace format: " + format);
+        }
+    }
+
+    /**
+     * Records a step of the wizard.
+     *
+     * @param xCoordinate the x-coordinate of the node moved to
+     * @param yCoordinate the y-coordinate of the node moved to
+     * @throws IOException if the trace cannot be written
+     */
+    public abstract void moveTo(int xCoordinate, int yCoordinate) throws IOException;
+
+    /**
+     * Records that the current path has been blocked by a discovered obstacle.
+     *
+     * @throws IOException if the trace cannot be written
+     */
+    public abstract void pathImpassable() throws IOException;
+
+    /**
+     * Records that an objective has been reached.
+     *
+     * @param objectiveCount the objective number
+     * @throws IOException if the trace cannot be written
+     */
+    public abstract void objectiveReached(int objectiveCount) throws IOException;
+
+    /**
+     * Records the option chosen from the wizard's offer.
+     *
+     * @param choice the chosen node type
+     * @throws IOException if the trace cannot be written
+     */
+    public abstract void choiceMade(int choice) throws IOException;
+
+    /**
+     * Makes sure the buffer can take the given number of bytes, writing it out if necessary.
+     *
+     * @param bytes the number of bytes about to be put
+     * @throws IOException if the trace cannot be written
+     */
+    protected void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     *
+     * @throws IOException if the trace cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
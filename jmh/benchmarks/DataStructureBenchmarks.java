@@ -0,0 +1,165 @@
+package benchmarks;
+
+import data_structures.HashTable;
+import data_structures.IndexedMinHeap;
+import data_structures.IntHashMap;
+import data_structures.LongIntHashMap;
+import data_structures.MinHeap;
+import data_structures.ProbingHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the hash maps and heaps on a batch of seeded random keys. Every invocation
+ * fills a structure with the whole batch and reads it back, so the maps are created empty each time and
+ * the heaps are drained again. Run with {@code -prof gc} to also report the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DataStructureBenchmarks {
+    private static final int BATCH = 1024; // Elements per invocation
+
+    @Param("42")
+    private long seed; // Seed of the keys and values
+
+    private final Integer[] keys = new Integer[BATCH]; // Random keys of the batch
+    private final Double[] values = new Double[BATCH]; // Random values of the batch
+    private final MinHeap<Double> minHeap = new MinHeap<>(BATCH); // Heap drained by every invocation
+    private final IndexedMinHeap indexedMinHeap = new IndexedMinHeap(4, BATCH); // Heap drained by every invocation
+
+    /**
+     * Draws the batch.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(seed);
+        for (int i = 0; i < BATCH; i++) {
+            keys[i] = random.nextInt();
+            values[i] = random.nextDouble();
+        }
+        indexedMinHeap.ensureIdCapacity(BATCH);
+    }
+
+    /**
+     * Fills a {@link HashTable} and looks every key up.
+     *
+     * @return the number of keys found
+     */
+    @Benchmark
+    public int hashTablePutGet() {
+        HashTable<Integer, Double> table = new HashTable<>();
+        for (int k = 0; k < BATCH; k++) {
+            table.put(keys[k], values[k]);
+        }
+        int found = 0;
+        for (int k = 0; k < BATCH; k++) {
+            found += table.get(keys[k]) != null ? 1 : 0;
+        }
+        return found;
+    }
+
+    /**
+     * Fills an {@link IntHashMap} and looks every key up.
+     *
+     * @return the number of keys found
+     */
+    @Benchmark
+    public int intHashMapPutGet() {
+        IntHashMap<Double> map = new IntHashMap<>(BATCH);
+        for (int k = 0; k < BATCH; k++) {
+            map.put(keys[k], values[k]);
+        }
+        int found = 0;
+        for (int k = 0; k < BATCH; k++) {
+            found += map.get(keys[k]) != null ? 1 : 0;
+        }
+        return found;
+    }
+
+    /**
+     * Fills a {@link LongIntHashMap} with packed coordinates and looks every key up.
+     *
+     * @return the number of keys found
+     */
+    @Benchmark
+    public int longIntHashMapPutGet() {
+        LongIntHashMap map = new LongIntHashMap(BATCH);
+        for (int k = 0; k < BATCH; k++) {
+            map.put(LongIntHashMap.pack(keys[k] >>> 16, keys[k] & 0xFFFF), k);
+        }
+        int found = 0;
+        for (int k = 0; k < BATCH; k++) {
+            found += map.getOrDefault(LongIntHashMap.pack(keys[k] >>> 16, keys[k] & 0xFFFF), -1) >= 0 ? 1 : 0;
+        }
+        return found;
+    }
+
+    /**
+     * Fills a {@link ProbingHashMap} and looks every key up.
+     *
+     * @return the number of keys found
+     */
+    @Benchmark
+    public int probingHashMapPutGet() {
+        ProbingHashMap<Integer, Double> map = new ProbingHashMap<>(BATCH);
+        for (int k = 0; k < BATCH; k++) {
+            map.put(keys[k], values[k]);
+        }
+        int found = 0;
+        for (int k = 0; k < BATCH; k++) {
+            found += map.get(keys[k]) != null ? 1 : 0;
+        }
+        return found;
+    }
+
+    /**
+     * Inserts the batch into a {@link MinHeap} and removes it in order.
+     *
+     * @return the largest value
+     */
+    @Benchmark
+    public double minHeapInsertGetMin() {
+        for (int k = 0; k < BATCH; k++) {
+            minHeap.insert(values[k]);
+        }
+        double last = 0;
+        while (!minHeap.isEmpty()) {
+            last = minHeap.getMin();
+        }
+        return last;
+    }
+
+    /**
+     * Inserts the batch into an {@link IndexedMinHeap} and removes it in order.
+     *
+     * @return the id of the largest value
+     */
+    @Benchmark
+    public int indexedMinHeapInsertRemove() {
+        for (int k = 0; k < BATCH; k++) {
+            indexedMinHeap.insert(k, values[k]);
+        }
+        int last = 0;
+        while (!indexedMinHeap.isEmpty()) {
+            last = indexedMinHeap.removeMin();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,130 @@
+package benchmarks;
+
+import actions.Actions;
+import models.DistanceMetric;
+import models.Graph;
+import models.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pathfinding.AStarSearch;
+import pathfinding.Heuristic;
+import pathfinding.SearchEngine;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the search and visibility hot paths on seeded maps from {@link MapGenerator}.
+ * The map is generated once per trial for every combination of the parameters, and every invocation runs
+ * the next of a fixed set of random queries between free cells. Run with {@code -prof gc} to also report
+ * the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SearchBenchmarks {
+    private static final int QUERIES = 256; // Distinct random queries cycled through by the benchmarks
+
+    @Param("256")
+    private int size; // Side of the square map
+    @Param("uniform")
+    private String weights; // Travel time distribution of the map
+    @Param("0.1")
+    private double density; // Share of hidden obstacles
+    @Param("5")
+    private int radius; // Visibility radius
+    @Param("42")
+    private long seed; // Seed of the map and of the queries
+
+    private Graph graph; // Map searched by the benchmarks, never discovered
+    private Graph freshGraph; // View of the map whose discoveries accumulate over an iteration, as in a run
+    private SearchEngine engine; // Engine pricing the wizard's options
+    private final Node[] sources = new Node[QUERIES]; // Start of each query
+    private final Node[] destinations = new Node[QUERIES]; // Destination of each query
+    private final String[] options = {"0", "0", "2", "3", "4", "5"}; // Objective line offering four options
+    private int query; // Index of the next query
+
+    /**
+     * Generates the map and the queries.
+     */
+    @Setup(Level.Trial)
+    public void setUpMap() {
+        MapGenerator generator = new MapGenerator(size, size, weights, density, seed);
+        graph = generator.build();
+        engine = new AStarSearch(new Heuristic(graph, DistanceMetric.OCTILE));
+        Random random = new Random(seed);
+        for (int i = 0; i < QUERIES; i++) {
+            int[] source = generator.randomFreeCell(random);
+            int[] destination = generator.randomFreeCell(random);
+            sources[i] = graph.getNode(graph.getNodeId(source[0], source[1]));
+            destinations[i] = graph.getNode(graph.getNodeId(destination[0], destination[1]));
+        }
+    }
+
+    /**
+     * Starts every iteration from an undiscovered view of the map.
+     */
+    @Setup(Level.Iteration)
+    public void setUpView() {
+        freshGraph = graph.newRun();
+    }
+
+    /**
+     * Plans a route with {@link Actions#findShortestPath(Graph, Node, Node)}.
+     *
+     * @return the route
+     */
+    @Benchmark
+    public ArrayList<Node> findShortestPath() {
+        int i = query++ % QUERIES;
+        return Actions.findShortestPath(graph, sources[i], destinations[i]);
+    }
+
+    /**
+     * Prices one option with {@link Actions#findShortestPath(Graph, Node, Node, int)}.
+     *
+     * @return the distance
+     */
+    @Benchmark
+    public double findShortestPathOfType() {
+        int i = query++ % QUERIES;
+        return Actions.findShortestPath(graph, sources[i], destinations[i], 2);
+    }
+
+    /**
+     * Sweeps the disk around a position with {@link Actions#getAdjacentNodesWithinRadius(Graph, Node, double)}.
+     *
+     * @return the number of nodes discovered
+     */
+    @Benchmark
+    public int getAdjacentNodesWithinRadius() {
+        int i = query++ % QUERIES;
+        Node center = freshGraph.getNode(graph.getNodeId(sources[i]));
+        return Actions.getAdjacentNodesWithinRadius(freshGraph, center, radius).size();
+    }
+
+    /**
+     * Prices four options and picks the best with {@link Actions#chooseForWizard}.
+     *
+     * @return the chosen type
+     */
+    @Benchmark
+    public int chooseForWizard() {
+        int i = query++ % QUERIES;
+        return Actions.chooseForWizard(graph, engine, options, sources[i], destinations[i]);
+    }
+}
@@ -0,0 +1,95 @@
+package metrics;
+
+/**
+ * A log-linear histogram of durations in nanoseconds. Every power-of-two range is split into
+ * {@value #SUB_BUCKETS} equal buckets, so recording is a few bit operations and a percentile is
+ * reported within about 3% of the recorded value whatever its magnitude.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5; // Buckets per power of two, as a power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets per power of two
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS]; // Values per bucket
+    private long totalCount; // Number of recorded values
+    private long max; // Largest recorded value
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds, negative values count as 0
+     */
+    public synchronized void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        totalCount++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Retrieves the number of recorded durations.
+     *
+     * @return the count
+     */
+    public synchronized long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Retrieves the largest recorded duration.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations by the nearest-rank method.
+     *
+     * @param percentile the percentile in (0, 100]
+     * @return the upper bound of the bucket holding that rank in nanoseconds, capped at the maximum,
+     *         or 0 if nothing was recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100 * totalCount);
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && seen > 0) {
+                return Math.min(max, upperBoundOf(bucket));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the bucket of a value: values below {@value #SUB_BUCKETS} get a bucket each, larger ones
+     * share a bucket with the values agreeing in their highest {@value #SUB_BUCKET_BITS} + 1 bits.
+     *
+     * @param value the non-negative value
+     * @return the bucket index
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Computes the largest value falling into a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket's upper bound
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowerBound = (1L << exponent) + ((long) (bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
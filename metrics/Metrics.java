@@ -0,0 +1,160 @@
+package metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, a per-objective latency histogram and JFR events for the hot paths, enabled with
+ * {@code -Dwizard.metrics=true}. The switch is a static final constant, so when it is off the JIT
+ * compiles every guarded call site away. Searches count into locals and report once per search,
+ * so the shared counters are touched once per search rather than once per edge.
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("wizard.metrics"); // Whether anything is recorded
+
+    private static final Algorithm[] ALGORITHMS = Algorithm.values();
+    private static final LongAdder[] SEARCHES = adders(); // Searches run, per algorithm
+    private static final LongAdder[] SETTLED = adders(); // Nodes settled, per algorithm
+    private static final LongAdder[] RELAXATIONS = adders(); // Edges examined, per algorithm
+    private static final LongAdder[] HEAP_PUSHES = adders(); // Priority queue insertions, per algorithm
+    private static final LongAdder[] HEAP_POPS = adders(); // Priority queue removals, per algorithm
+    private static final LongAdder CELLS_SCANNED = new LongAdder(); // Obstacles examined by visibility sweeps
+    private static final LongAdder PLANS = new LongAdder(); // Routes planned over all objectives
+    private static final LatencyHistogram OBJECTIVE_LATENCIES = new LatencyHistogram(); // Wall time per objective
+
+    /**
+     * The search algorithms counted separately.
+     */
+    public enum Algorithm {
+        DIJKSTRA("Dijkstra"),
+        A_STAR("A*"),
+        BIDIRECTIONAL("Bidirectional"),
+        MULTI_OPTION("Multi-option"),
+        TREE_CACHE("Tree cache"),
+        JUMP_POINT("Jump point"),
+        DELTA_STEPPING("Delta-stepping"),
+        INCREMENTAL("D* Lite"),
+        HIERARCHICAL("HPA*");
+
+        private final String label; // Name shown in the summary and the JFR events
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts the JFR event of a search. Must only be called when metrics are enabled.
+     *
+     * @return the started event
+     */
+    public static SearchEvent beginSearch() {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records a finished search. Must only be called when metrics are enabled.
+     *
+     * @param event       the event returned by {@link #beginSearch()}
+     * @param algorithm   the algorithm that ran
+     * @param settled     the nodes settled or expanded
+     * @param relaxations the edges examined
+     * @param heapPushes  the priority queue insertions
+     * @param heapPops    the priority queue removals
+     */
+    public static void endSearch(SearchEvent event, Algorithm algorithm, long settled, long relaxations,
+                                 long heapPushes, long heapPops) {
+        int index = algorithm.ordinal();
+        SEARCHES[index].increment();
+        SETTLED[index].add(settled);
+        RELAXATIONS[index].add(relaxations);
+        HEAP_PUSHES[index].add(heapPushes);
+        HEAP_POPS[index].add(heapPops);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm.label;
+            event.settled = settled;
+            event.relaxations = relaxations;
+            event.heapPushes = heapPushes;
+            event.heapPops = heapPops;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the obstacles examined by a visibility sweep. Must only be called when metrics are enabled.
+     *
+     * @param cells the number of candidate cells examined
+     */
+    public static void recordDiscovery(long cells) {
+        CELLS_SCANNED.add(cells);
+    }
+
+    /**
+     * Starts the JFR event of an objective. Must only be called when metrics are enabled.
+     *
+     * @return the started event
+     */
+    public static ObjectiveEvent beginObjective() {
+        ObjectiveEvent event = new ObjectiveEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records a reached objective. Must only be called when metrics are enabled.
+     *
+     * @param event     the event returned by {@link #beginObjective()}
+     * @param objective the objective number
+     * @param nanos     the wall time spent on the objective
+     * @param plans     the routes planned to reach it
+     */
+    public static void endObjective(ObjectiveEvent event, int objective, long nanos, int plans) {
+        OBJECTIVE_LATENCIES.record(nanos);
+        PLANS.add(plans);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.objective = objective;
+            event.plans = plans;
+            event.commit();
+        }
+    }
+
+    /**
+     * Prints the counters and the objective latency percentiles.
+     *
+     * @param out the stream to print to
+     */
+    public static void printSummary(PrintStream out) {
+        out.printf("%-14s %10s %14s %14s %14s %14s%n", "Search", "count", "settled", "relaxations",
+                "heap pushes", "heap pops");
+        for (Algorithm algorithm : ALGORITHMS) {
+            int index = algorithm.ordinal();
+            if (SEARCHES[index].sum() == 0) continue;
+            out.printf("%-14s %10d %14d %14d %14d %14d%n", algorithm.label, SEARCHES[index].sum(),
+                    SETTLED[index].sum(), RELAXATIONS[index].sum(), HEAP_PUSHES[index].sum(), HEAP_POPS[index].sum());
+        }
+
+        long objectives = OBJECTIVE_LATENCIES.getCount();
+        out.printf("Objectives: %d, plans per objective: %.3f, cells scanned in discovery: %d%n", objectives,
+                objectives == 0 ? 0.0 : (double) PLANS.sum() / objectives, CELLS_SCANNED.sum());
+        out.printf("Objective latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                OBJECTIVE_LATENCIES.getPercentile(50) / 1e6, OBJECTIVE_LATENCIES.getPercentile(90) / 1e6,
+                OBJECTIVE_LATENCIES.getPercentile(99) / 1e6, OBJECTIVE_LATENCIES.getMax() / 1e6);
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[Algorithm.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
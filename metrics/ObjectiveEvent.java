@@ -0,0 +1,22 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event spanning the processing of one objective line, including the wizard's choice.
+ */
+@Name("wizard.Objective")
+@Label("Objective")
+@Category("Wizard")
+@Description("Reaching one objective")
+public class ObjectiveEvent extends Event {
+    @Label("Objective")
+    int objective; // Number of the objective
+
+    @Label("Plans")
+    int plans; // Routes planned to reach the objective
+}
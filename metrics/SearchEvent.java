@@ -0,0 +1,31 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event spanning one shortest path search, or one repair of the incremental planner.
+ */
+@Name("wizard.Search")
+@Label("Search")
+@Category("Wizard")
+@Description("One shortest path search")
+public class SearchEvent extends Event {
+    @Label("Algorithm")
+    String algorithm; // Name of the search algorithm
+
+    @Label("Nodes Settled")
+    long settled; // Nodes settled or expanded by the search
+
+    @Label("Edge Relaxations")
+    long relaxations; // Edges examined by the search
+
+    @Label("Heap Pushes")
+    long heapPushes; // Insertions into the priority queue
+
+    @Label("Heap Pops")
+    long heapPops; // Removals of the minimum from the priority queue
+}
@@ -0,0 +1,37 @@
+package models;
+
+/**
+ * Distance measures between grid coordinates, used to derive lower bounds on travel time.
+ */
+public enum DistanceMetric {
+    /**
+     * The straight-line distance.
+     */
+    EUCLIDEAN {
+        @Override
+        public double length(int dx, int dy) {
+            return Math.sqrt((double) dx * dx + (double) dy * dy);
+        }
+    },
+
+    /**
+     * The length of the shortest route using only axis-aligned and diagonal steps.
+     */
+    OCTILE {
+        @Override
+        public double length(int dx, int dy) {
+            int absX = Math.abs(dx);
+            int absY = Math.abs(dy);
+            return Math.max(absX, absY) + (Math.sqrt(2) - 1) * Math.min(absX, absY);
+        }
+    };
+
+    /**
+     * Measures the length of a displacement between two grid cells.
+     *
+     * @param dx the displacement along the x axis
+     * @param dy the displacement along the y axis
+     * @return the length of the displacement
+     */
+    public abstract double length(int dx, int dy);
+}
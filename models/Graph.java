@@ -0,0 +1,345 @@
+package models;
+
+import data_structures.ObstacleIndex;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * An immutable compressed sparse row (CSR) representation of the land's adjacency.
+ * Every node is identified by a dense integer id derived from its grid coordinates, and the
+ * outgoing edges of node {@code id} occupy the index range {@code [offsets[id], offsets[id + 1])}
+ * of the parallel {@code targets} and {@code weights} arrays.
+ * The arrays read at load time are never modified and can be shared by any number of simulations:
+ * the discovery and type changes of one simulation are kept in its {@link MapOverlay}, and
+ * {@link #newRun()} gives another simulation a view of the same map with a fresh overlay.
+ * Structures derived from the loaded map, such as preprocessed search tables, are kept with the map
+ * through {@link #getDerived(String, Function)}, so all of its views share them.
+ * Searches read both through primitive arrays and never dereference {@link Node} or {@link Edge}
+ * objects, which keep the state they were loaded with.
+ */
+public class Graph {
+    private static final Object NONE = new Object(); // Stored for a derived structure that is null
+
+    private final int width; // Number of columns (x axis) of the grid
+    private final int height; // Number of rows (y axis) of the grid
+    private final int[] offsets; // Start index of each node's edges, length is node count + 1
+    private final int[] targets; // Destination node id of each edge
+    private final double[] weights; // Base travel time of each edge
+    private final int[] nodeTypes; // Type of each node as loaded
+    private final Node[] nodes; // Node objects indexed by id, null for cells without a node
+    private final double[] minTravelTimesPerUnit; // Lowest travel time per unit length, per distance metric
+    private final ObstacleIndex hiddenObstacles; // Nodes of type 2 or more as loaded, copied by each overlay
+    private final MapOverlay overlay; // Discovery and type changes of the simulation using this view
+    private final ConcurrentHashMap<String, Object> derived; // Structures derived from the map, shared by its views
+
+    /**
+     * Constructs a graph from prebuilt CSR arrays. Use {@link GraphBuilder} to create instances.
+     *
+     * @param width     the number of columns of the grid
+     * @param height    the number of rows of the grid
+     * @param offsets   the edge offsets per node
+     * @param targets   the destination node ids of the edges
+     * @param weights   the travel times of the edges
+     * @param nodeTypes the types of the nodes
+     * @param nodes     the node objects indexed by id
+     * @param minTravelTimesPerUnit the lowest travel time per unit length, indexed by metric ordinal
+     * @param hiddenObstacles the index of the undiscovered nodes of type 2 or more
+     */
+    Graph(int width, int height, int[] offsets, int[] targets, double[] weights, int[] nodeTypes, Node[] nodes,
+          double[] minTravelTimesPerUnit, ObstacleIndex hiddenObstacles) {
+        this.width = width;
+        this.height = height;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nodeTypes = nodeTypes;
+        this.nodes = nodes;
+        this.minTravelTimesPerUnit = minTravelTimesPerUnit;
+        this.hiddenObstacles = hiddenObstacles;
+        this.overlay = new MapOverlay(nodeTypes, hiddenObstacles);
+        this.derived = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructs another view of the map of the given graph, with a fresh overlay.
+     *
+     * @param map the graph whose map is shared
+     */
+    private Graph(Graph map) {
+        this.width = map.width;
+        this.height = map.height;
+        this.offsets = map.offsets;
+        this.targets = map.targets;
+        this.weights = map.weights;
+        this.nodeTypes = map.nodeTypes;
+        this.nodes = map.nodes;
+        this.minTravelTimesPerUnit = map.minTravelTimesPerUnit;
+        this.hiddenObstacles = map.hiddenObstacles;
+        this.overlay = new MapOverlay(nodeTypes, hiddenObstacles);
+        this.derived = map.derived;
+    }
+
+    /**
+     * Creates a view of the same map for another simulation, as it was loaded: nothing discovered
+     * and no type changed. The map's arrays are shared, only a new overlay is allocated, so the
+     * views can be used concurrently by one thread each.
+     *
+     * @return the new view
+     */
+    public Graph newRun() {
+        return new Graph(this);
+    }
+
+    /**
+     * Retrieves a structure derived from the map, building it the first time any view of the map asks
+     * for it. The builder must only read the map as loaded, not the discoveries and type changes of the
+     * view it is given, and the structure must be safe to share between the simulations of the views.
+     *
+     * @param key     the name of the structure, including every parameter it was built with
+     * @param builder builds the structure from a view of the map, and may return {@code null}
+     * @param <T>     the type of the structure
+     * @return the structure, or {@code null} if the builder returned {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getDerived(String key, Function<Graph, T> builder) {
+        Object value = derived.get(key);
+        if (value == null) {
+            // Build under a lock, so that views asking at the same time do not build it twice
+            synchronized (derived) {
+                value = derived.get(key);
+                if (value == null) {
+                    T structure = builder.apply(this);
+                    value = structure == null ? NONE : structure;
+                    derived.put(key, value);
+                }
+            }
+        }
+        return value == NONE ? null : (T) value;
+    }
+
+    /**
+     * Computes the id of the node at the given coordinates.
+     *
+     * @param xCoordinate the x-coordinate of the node
+     * @param yCoordinate the y-coordinate of the node
+     * @return the node id
+     */
+    public int getNodeId(int xCoordinate, int yCoordinate) {
+        return xCoordinate * height + yCoordinate;
+    }
+
+    /**
+     * Computes the id of the given node.
+     *
+     * @param node the node
+     * @return the node id
+     */
+    public int getNodeId(Node node) {
+        return getNodeId(node.getxCoordinate(), node.getyCoordinate());
+    }
+
+    /**
+     * Retrieves the x-coordinate of the node with the given id.
+     *
+     * @param id the node id
+     * @return the x-coordinate
+     */
+    public int getxCoordinate(int id) {
+        return id / height;
+    }
+
+    /**
+     * Retrieves the y-coordinate of the node with the given id.
+     *
+     * @param id the node id
+     * @return the y-coordinate
+     */
+    public int getyCoordinate(int id) {
+        return id % height;
+    }
+
+    /**
+     * Retrieves the node object with the given id.
+     *
+     * @param id the node id
+     * @return the node, or {@code null} if there is no node at that cell
+     */
+    public Node getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Retrieves the number of node ids, i.e. the number of cells of the grid.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return nodeTypes.length;
+    }
+
+    /**
+     * Retrieves the number of directed edges.
+     *
+     * @return the edge count
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieves the smallest travel time per unit of length over all passable edges, as seen at load time.
+     *
+     * @param metric the metric the edge lengths are measured with
+     * @return the minimum travel time per unit length
+     */
+    public double getMinTravelTimePerUnit(DistanceMetric metric) {
+        return minTravelTimesPerUnit[metric.ordinal()];
+    }
+
+    /**
+     * Retrieves the spatial index of the hidden obstacles that have not been discovered yet.
+     * It is kept up to date by {@link #discoverNode(int)} and {@link #updateAfterChoice(int)}.
+     *
+     * @return the index of undiscovered obstacles
+     */
+    public ObstacleIndex getHiddenObstacles() {
+        return overlay.getHiddenObstacles();
+    }
+
+    /**
+     * Retrieves the edge offsets. The returned array is shared and must not be modified.
+     *
+     * @return the edge offsets indexed by node id
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Retrieves the edge destinations. The returned array is shared and must not be modified.
+     *
+     * @return the destination node ids indexed by edge
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Retrieves the base edge travel times. The returned array is shared and must not be modified.
+     *
+     * @return the travel times indexed by edge
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Retrieves the current type of the node with the given id.
+     *
+     * @param id the node id
+     * @return the node type
+     */
+    public int getNodeType(int id) {
+        return overlay.getNodeType(id);
+    }
+
+    /**
+     * Gets the type of a node as loaded, regardless of the changes made in this view.
+     *
+     * @param id the node id
+     * @return the loaded node type
+     */
+    public int getBaseNodeType(int id) {
+        return nodeTypes[id];
+    }
+
+    /**
+     * Checks whether the node with the given id has been discovered.
+     *
+     * @param id the node id
+     * @return {@code true} if the node is discovered, {@code false} otherwise
+     */
+    public boolean isDiscovered(int id) {
+        return overlay.isDiscovered(id);
+    }
+
+    /**
+     * Gets the travel time of an edge, following the rules of {@link Edge#getTravelTime()}.
+     *
+     * @param edge the edge index
+     * @return the travel time, or {@code Double.MAX_VALUE} if the destination is discovered
+     */
+    public double getTravelTime(int edge) {
+        if (overlay.isDiscovered(targets[edge])) {
+            return Double.MAX_VALUE;
+        }
+        return weights[edge];
+    }
+
+    /**
+     * Gets the travel time of an edge, following the rules of {@link Edge#getTravelTime(int)}.
+     *
+     * @param edge     the edge index
+     * @param nodeType the type of nodes that are treated as passable
+     * @return the travel time, or {@code Double.MAX_VALUE} if the conditions are not met
+     */
+    public double getTravelTime(int edge, int nodeType) {
+        int target = targets[edge];
+        if (overlay.isDiscovered(target) && overlay.getNodeType(target) != nodeType) {
+            return Double.MAX_VALUE;
+        }
+        return weights[edge];
+    }
+
+    /**
+     * Marks the node with the given id as discovered.
+     *
+     * @param id the node id
+     */
+    public void discoverNode(int id) {
+        if (overlay.isDiscovered(id)) {
+            return;
+        }
+        if (overlay.getNodeType(id) > 1) {
+            overlay.getHiddenObstacles().remove(id);
+        }
+        overlay.setDiscovered(id, true);
+        overlay.recordChange(id, false);
+    }
+
+    /**
+     * Resets the node with the given id after a wizard's choice.
+     *
+     * @param id the node id
+     */
+    public void updateAfterChoice(int id) {
+        if (overlay.getNodeType(id) == 0 && !overlay.isDiscovered(id)) {
+            return;
+        }
+        if (!overlay.isDiscovered(id) && overlay.getNodeType(id) > 1) {
+            overlay.getHiddenObstacles().remove(id); // A node of type 0 can no longer be revealed
+        }
+        overlay.setNodeType(id, 0);
+        overlay.setDiscovered(id, false);
+        overlay.recordChange(id, true);
+    }
+
+    /**
+     * Retrieves the discovery and type state of the simulation using this view, including its
+     * version and change log.
+     *
+     * @return the overlay of this view
+     */
+    public MapOverlay getOverlay() {
+        return overlay;
+    }
+}
@@ -0,0 +1,169 @@
+package models;
+
+import data_structures.ObstacleIndex;
+
+import java.util.Arrays;
+
+/**
+ * Collects nodes and directed edges while the input files are being read and
+ * compiles them into an immutable {@link Graph} in compressed sparse row form.
+ * Edges of the same source node keep the order in which they were added.
+ */
+public class GraphBuilder {
+    private static final int OBSTACLE_BUCKET_SIZE = 8; // Side length of the hidden obstacle index buckets
+
+    private final int width; // Number of columns (x axis) of the grid
+    private final int height; // Number of rows (y axis) of the grid
+    private final int[] nodeTypes; // Type of each node indexed by id
+    private final Node[] nodes; // Node objects indexed by id
+    private final ObstacleIndex hiddenObstacles; // Nodes of type 2 or more, all undiscovered at load
+    private int[] sources = new int[16]; // Source node id of each added edge
+    private int[] targets = new int[16]; // Destination node id of each added edge
+    private double[] weights = new double[16]; // Travel time of each added edge
+    private int edgeCount; // Number of added edges
+
+    /**
+     * Constructs a builder for a grid of the given dimensions.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     */
+    public GraphBuilder(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.nodeTypes = new int[width * height];
+        this.nodes = new Node[width * height];
+        this.hiddenObstacles = new ObstacleIndex(width, height, OBSTACLE_BUCKET_SIZE);
+    }
+
+    /**
+     * Registers a node at its grid position.
+     *
+     * @param node the node to add
+     */
+    public void addNode(Node node) {
+        int id = node.getxCoordinate() * height + node.getyCoordinate();
+        nodes[id] = node;
+        nodeTypes[id] = node.getNodeType();
+        if (node.getNodeType() > 1) {
+            hiddenObstacles.add(id);
+        }
+    }
+
+    /**
+     * Adds a directed edge between two nodes.
+     *
+     * @param source      the node the edge starts from
+     * @param destination the node the edge points to
+     * @param travelTime  the travel time of the edge
+     */
+    public void addEdge(Node source, Node destination, double travelTime) {
+        addEdge(source.getxCoordinate() * height + source.getyCoordinate(),
+                destination.getxCoordinate() * height + destination.getyCoordinate(), travelTime);
+    }
+
+    /**
+     * Adds a directed edge between two node ids.
+     *
+     * @param source      the id of the node the edge starts from
+     * @param destination the id of the node the edge points to
+     * @param travelTime  the travel time of the edge
+     */
+    public void addEdge(int source, int destination, double travelTime) {
+        if (edgeCount == sources.length) {
+            int capacity = 2 * edgeCount;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        sources[edgeCount] = source;
+        targets[edgeCount] = destination;
+        weights[edgeCount] = travelTime;
+        edgeCount++;
+    }
+
+    /**
+     * Compiles the collected nodes and edges into a graph.
+     *
+     * @return the compiled graph
+     */
+    public Graph build() {
+        int nodeCount = nodeTypes.length;
+        int[] offsets = new int[nodeCount + 1];
+
+        // Count the edges of each source node, then turn the counts into start offsets
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Place every edge into its source's slot range, preserving insertion order
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        int[] csrTargets = new int[edgeCount];
+        double[] csrWeights = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            int slot = cursor[sources[i]]++;
+            csrTargets[slot] = targets[i];
+            csrWeights[slot] = weights[i];
+        }
+        return new Graph(width, height, offsets, csrTargets, csrWeights, nodeTypes, nodes, minTravelTimesPerUnit(),
+                hiddenObstacles);
+    }
+
+    /**
+     * Recreates a graph from arrays that were compiled earlier, e.g. read back from a snapshot.
+     * The hidden obstacles are indexed in the given order, so their buckets match the original graph's.
+     *
+     * @param width                 the number of columns of the grid
+     * @param height                the number of rows of the grid
+     * @param offsets               the edge offsets per node
+     * @param targets               the destination node ids of the edges
+     * @param weights               the travel times of the edges
+     * @param nodeTypes             the types of the nodes
+     * @param nodes                 the node objects indexed by id
+     * @param minTravelTimesPerUnit the lowest travel time per unit length, indexed by metric ordinal
+     * @param hiddenObstacleIds     the ids of the undiscovered nodes of type 2 or more
+     * @return the restored graph
+     */
+    public static Graph restore(int width, int height, int[] offsets, int[] targets, double[] weights,
+                                int[] nodeTypes, Node[] nodes, double[] minTravelTimesPerUnit,
+                                int[] hiddenObstacleIds) {
+        ObstacleIndex hiddenObstacles = new ObstacleIndex(width, height, OBSTACLE_BUCKET_SIZE);
+        for (int id : hiddenObstacleIds) {
+            hiddenObstacles.add(id);
+        }
+        return new Graph(width, height, offsets, targets, weights, nodeTypes, nodes, minTravelTimesPerUnit,
+                hiddenObstacles);
+    }
+
+    /**
+     * Finds, for every distance metric, the smallest travel time per unit of length over all passable edges.
+     * Multiplying a metric's distance by this value never overestimates the travel time between two nodes.
+     *
+     * @return the minimum travel time per unit of length, indexed by metric ordinal
+     */
+    private double[] minTravelTimesPerUnit() {
+        DistanceMetric[] metrics = DistanceMetric.values();
+        double[] minimums = new double[metrics.length];
+        Arrays.fill(minimums, Double.MAX_VALUE);
+        for (int i = 0; i < edgeCount; i++) {
+            if (weights[i] == Double.MAX_VALUE) continue; // Impassable edges are never traversed
+            int dx = sources[i] / height - targets[i] / height;
+            int dy = sources[i] % height - targets[i] % height;
+            for (DistanceMetric metric : metrics) {
+                double length = metric.length(dx, dy);
+                if (length > 0) {
+                    minimums[metric.ordinal()] = Math.min(minimums[metric.ordinal()], weights[i] / length);
+                }
+            }
+        }
+        for (int i = 0; i < minimums.length; i++) {
+            if (minimums[i] == Double.MAX_VALUE) {
+                minimums[i] = 0.0; // Without passable edges no bound can be derived
+            }
+        }
+        return minimums;
+    }
+}
@@ -0,0 +1,181 @@
+package models;
+
+import data_structures.IntList;
+import data_structures.LongIntHashMap;
+import data_structures.ObstacleIndex;
+
+/**
+ * The state one simulation changes on top of an immutable map: which nodes have been discovered,
+ * the nodes whose type was changed by a wizard's choice, and the hidden obstacles still to be found.
+ * Discovery is a bitset, changed types are kept sparsely behind a second bitset so that reading
+ * the type of an unchanged node stays one array access, and the obstacle index is a copy-on-write
+ * view of the map's index. Creating an overlay therefore costs two bits per cell plus one array
+ * of references per obstacle bucket, whatever the size of the map's arrays.
+ * Every change bumps a version number, and once {@link #startChangeLog()} is called the changed
+ * nodes are logged by version, so results computed at an older version can find out what changed since.
+ */
+public class MapOverlay {
+    private final int[] baseNodeTypes; // Types of the nodes as loaded, shared with the map
+    private final long[] discovered; // Discovery bit of each node
+    private final long[] overridden; // Bit of each node whose type differs from the loaded one
+    private final LongIntHashMap typeOverrides; // Current type of each overridden node, keyed by id
+    private final ObstacleIndex hiddenObstacles; // Nodes of type 2 or more that are not discovered yet
+    private int version; // Number of discoveries and type changes so far
+    private IntList changeLog; // Node of each change since the log was started, complemented for type changes
+    private int changeLogStart; // Version at which the change log was started
+
+    /**
+     * Constructs the state of a fresh simulation: nothing discovered and every type as loaded.
+     *
+     * @param baseNodeTypes   the types of the nodes as loaded, not modified
+     * @param hiddenObstacles the index of the hidden obstacles as loaded, not modified
+     */
+    MapOverlay(int[] baseNodeTypes, ObstacleIndex hiddenObstacles) {
+        this.baseNodeTypes = baseNodeTypes;
+        this.discovered = new long[(baseNodeTypes.length + 63) >>> 6];
+        this.overridden = new long[discovered.length];
+        this.typeOverrides = new LongIntHashMap();
+        this.hiddenObstacles = hiddenObstacles.copy();
+    }
+
+    /**
+     * Checks whether the node with the given id has been discovered.
+     *
+     * @param id the node id
+     * @return {@code true} if the node is discovered, {@code false} otherwise
+     */
+    public boolean isDiscovered(int id) {
+        return (discovered[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Reads the discovery bits of 64 consecutive node ids at once.
+     *
+     * @param from the first node id
+     * @return the discovery bit of node {@code from + i} at bit i, 0 past the last node
+     */
+    public long getDiscoveredBits(int from) {
+        return bitsAt(discovered, from);
+    }
+
+    /**
+     * Reads for 64 consecutive node ids at once whether their type differs from the loaded one.
+     *
+     * @param from the first node id
+     * @return the override bit of node {@code from + i} at bit i, 0 past the last node
+     */
+    public long getOverriddenBits(int from) {
+        return bitsAt(overridden, from);
+    }
+
+    /**
+     * Reads 64 consecutive bits of a bitset, starting at any position. Any bitset kept one bit per
+     * node id, like those of the overlay, can be read a word of node ids at a time with it.
+     *
+     * @param words the bitset
+     * @param from  the position of the first bit
+     * @return the bits, 0 past the end of the bitset
+     */
+    public static long bitsAt(long[] words, int from) {
+        int index = from >>> 6;
+        int shift = from & 63;
+        long bits = words[index] >>> shift;
+        if (shift != 0 && index + 1 < words.length) {
+            bits |= words[index + 1] << (64 - shift);
+        }
+        return bits;
+    }
+
+    /**
+     * Sets or clears the discovery bit of a node.
+     *
+     * @param id           the node id
+     * @param isDiscovered whether the node is discovered
+     */
+    public void setDiscovered(int id, boolean isDiscovered) {
+        if (isDiscovered) {
+            discovered[id >>> 6] |= 1L << id;
+        } else {
+            discovered[id >>> 6] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Retrieves the current type of a node.
+     *
+     * @param id the node id
+     * @return the overridden type, or the loaded type if the node was never changed
+     */
+    public int getNodeType(int id) {
+        if ((overridden[id >>> 6] & (1L << id)) == 0) {
+            return baseNodeTypes[id];
+        }
+        return typeOverrides.getOrDefault(id, baseNodeTypes[id]);
+    }
+
+    /**
+     * Changes the type of a node for this simulation only.
+     *
+     * @param id       the node id
+     * @param nodeType the new type
+     */
+    public void setNodeType(int id, int nodeType) {
+        overridden[id >>> 6] |= 1L << id;
+        typeOverrides.put(id, nodeType);
+    }
+
+    /**
+     * Counts a discovery or type change of a node, logging it if the change log was started.
+     *
+     * @param id         the node id
+     * @param typeChange {@code true} for a type change, {@code false} for a discovery
+     */
+    void recordChange(int id, boolean typeChange) {
+        version++;
+        if (changeLog != null) {
+            changeLog.add(typeChange ? ~id : id);
+        }
+    }
+
+    /**
+     * Retrieves the number of discoveries and type changes so far.
+     *
+     * @return the current version of the state
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Starts logging the changed nodes, unless the log was started already. Changes made before
+     * the log was started cannot be looked up.
+     */
+    public void startChangeLog() {
+        if (changeLog == null) {
+            changeLog = new IntList();
+            changeLogStart = version;
+        }
+    }
+
+    /**
+     * Retrieves the logged change that produced a version.
+     *
+     * @param version a version after the start of the change log, up to the current one
+     * @return the node id for a discovery, or its complement {@code ~id} for a type change
+     */
+    public int getChange(int version) {
+        if (changeLog == null || version <= changeLogStart || version > this.version) {
+            throw new IllegalArgumentException("Version " + version + " is not in the change log");
+        }
+        return changeLog.get(version - changeLogStart - 1);
+    }
+
+    /**
+     * Retrieves this simulation's index of the hidden obstacles that have not been discovered yet.
+     *
+     * @return the index of undiscovered obstacles
+     */
+    public ObstacleIndex getHiddenObstacles() {
+        return hiddenObstacles;
+    }
+}
@@ -1,7 +1,6 @@
 package models;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /**
  * Represents a node in the graph, characterized by its coordinates, type, and edges.
@@ -98,7 +97,7 @@ public class Node {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(xCoordinate, yCoordinate);
+        return 31 * xCoordinate + yCoordinate;
     }
 
     /**
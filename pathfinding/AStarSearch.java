@@ -0,0 +1,119 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import data_structures.SearchContext;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Goal-directed variants of the shortest path searches in {@link actions.Actions}. Nodes are settled in
+ * order of their distance plus a {@link Heuristic} estimate of the remaining travel time, so only the
+ * nodes that can still lie on a shortest path are expanded. The heuristic is consistent, so the
+ * returned paths and distances are the same as those of Dijkstra's algorithm.
+ */
+public class AStarSearch implements SearchEngine {
+    private final Heuristic heuristic; // Estimate of the remaining travel time
+    private final LongAdder settledNodes = new LongAdder(); // Nodes settled by all searches so far
+
+    /**
+     * Constructs an A* engine guided by the given heuristic.
+     *
+     * @param heuristic the estimate of the remaining travel time
+     */
+    public AStarSearch(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        SearchContext context = SearchContext.get(graph.getNodeCount());
+        int destination = graph.getNodeId(destinationNode);
+        if (!search(graph, context, graph.getNodeId(initialNode), destination, -1)) {
+            return null;
+        }
+
+        // Backtrack to construct the path
+        ArrayList<Node> path = new ArrayList<>();
+        for (int current = destination; current != -1; current = context.getPrevious(current)) {
+            path.add(graph.getNode(current));
+        }
+        return path;
+    }
+
+    @Override
+    public double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        SearchContext context = SearchContext.get(graph.getNodeCount());
+        int destination = graph.getNodeId(destinationNode);
+        if (!search(graph, context, graph.getNodeId(initialNode), destination, nodeType)) {
+            return 0.0;
+        }
+        return context.getDistance(destination);
+    }
+
+    @Override
+    public long getSettledCount() {
+        return settledNodes.sum();
+    }
+
+    /**
+     * Runs A* until the destination is settled or the frontier is exhausted.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param context     the search context holding distances and predecessors
+     * @param source      the id of the starting node
+     * @param destination the id of the destination node
+     * @param nodeType    the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @return {@code true} if the destination was reached, {@code false} otherwise
+     */
+    private boolean search(Graph graph, SearchContext context, int source, int destination, int nodeType) {
+        IndexedMinHeap minHeap = context.getHeap();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = minHeap.getPushCount(); // Heap counters before the search
+        long pops = minHeap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        context.setDistance(source, 0.0, -1);
+        minHeap.insert(source, heuristic.estimate(source, destination), 0.0);
+
+        try {
+            while (!minHeap.isEmpty()) {
+                int currentNode = minHeap.removeMin();
+                context.settle(currentNode);
+                if (currentNode == destination) {
+                    return true;
+                }
+
+                double currentDistance = context.getDistance(currentNode);
+                if (Metrics.ENABLED) relaxations += offsets[currentNode + 1] - offsets[currentNode];
+                for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    double travelTime = nodeType < 0 ? graph.getTravelTime(edge) : graph.getTravelTime(edge, nodeType);
+                    if (travelTime == Double.MAX_VALUE || context.isSettled(neighbor)) continue;
+
+                    double newDistance = currentDistance + travelTime;
+                    if (newDistance < context.getDistance(neighbor)) {
+                        context.setDistance(neighbor, newDistance, currentNode);
+                        // Among equal estimates prefer the node that is further along
+                        minHeap.insertOrDecrease(neighbor, newDistance + heuristic.estimate(neighbor, destination),
+                                -newDistance);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            settledNodes.add(context.getSettledCount());
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.A_STAR, context.getSettledCount(), relaxations,
+                        minHeap.getPushCount() - pushes, minHeap.getPopCount() - pops);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import data_structures.SearchContext;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bidirectional Dijkstra. One search grows from the initial node and one from the destination,
+ * always expanding the side with the smaller frontier key, and they stop once the sum of both
+ * frontier keys reaches the best meeting distance found so far. Edges are always added in both
+ * directions with the same travel time, so the backward search reads the reverse edges from the
+ * node's own adjacency; the cost of a reverse edge is still decided by the node it enters.
+ *
+ * <p>The meeting distance adds the two halves of the path as two sums, while a one-directional search
+ * adds the travel times one by one from the initial node, so the two can differ in the last bits. The
+ * distance returned is therefore summed again along the path in forward order, which gives the
+ * distances of Dijkstra's algorithm whenever the shortest paths add up to one sum. Where several
+ * shortest paths add the same travel times in another order, as on 8-connected grids with one straight
+ * and one diagonal travel time, the search may meet on a path whose sum differs in the last bits, so
+ * there this engine is not choice-preserving: the wizard may pick another of two equally short options.
+ */
+public class BidirectionalSearch implements SearchEngine {
+    private final LongAdder settledNodes = new LongAdder(); // Nodes settled by all searches so far
+
+    @Override
+    public ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        SearchContext forward = SearchContext.get(graph.getNodeCount());
+        SearchContext backward = SearchContext.getBackward(graph.getNodeCount());
+        Meeting meeting = search(graph, forward, backward,
+                graph.getNodeId(initialNode), graph.getNodeId(destinationNode), -1);
+        if (meeting == null) {
+            return null;
+        }
+
+        // Walk the backward tree from the meeting point to the destination, then prepend it reversed
+        ArrayList<Node> path = new ArrayList<>();
+        for (int current = meeting.backwardNode; current != -1; current = backward.getPrevious(current)) {
+            path.add(graph.getNode(current));
+        }
+        for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+            path.set(i, path.set(j, path.get(i)));
+        }
+
+        // Continue along the forward tree from the meeting point back to the initial node
+        int current = meeting.backwardNode == meeting.forwardNode
+                ? forward.getPrevious(meeting.forwardNode) : meeting.forwardNode;
+        for (; current != -1; current = forward.getPrevious(current)) {
+            path.add(graph.getNode(current));
+        }
+        return path;
+    }
+
+    @Override
+    public double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        SearchContext forward = SearchContext.get(graph.getNodeCount());
+        SearchContext backward = SearchContext.getBackward(graph.getNodeCount());
+        Meeting meeting = search(graph, forward, backward,
+                graph.getNodeId(initialNode), graph.getNodeId(destinationNode), nodeType);
+        if (meeting == null) {
+            return 0.0;
+        }
+
+        // Add the travel times of the connecting edge and of the backward half one by one, in the order
+        // a search from the initial node adds them
+        double distance = forward.getDistance(meeting.forwardNode);
+        if (meeting.forwardNode != meeting.backwardNode) {
+            distance += travelTime(graph, meeting.forwardNode, meeting.backwardNode, nodeType);
+        }
+        for (int current = meeting.backwardNode; backward.getPrevious(current) != -1;
+             current = backward.getPrevious(current)) {
+            distance += travelTime(graph, current, backward.getPrevious(current), nodeType);
+        }
+        return distance;
+    }
+
+    @Override
+    public long getSettledCount() {
+        return settledNodes.sum();
+    }
+
+    /**
+     * Runs both searches until no shorter connection between them can exist.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param forward     the context of the search from the initial node
+     * @param backward    the context of the search from the destination node
+     * @param source      the id of the starting node
+     * @param destination the id of the destination node
+     * @param nodeType    the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @return the best meeting point, or {@code null} if the destination is unreachable
+     */
+    private Meeting search(Graph graph, SearchContext forward, SearchContext backward,
+                           int source, int destination, int nodeType) {
+        IndexedMinHeap forwardHeap = forward.getHeap();
+        IndexedMinHeap backwardHeap = backward.getHeap();
+        Meeting meeting = new Meeting();
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = forwardHeap.getPushCount() + backwardHeap.getPushCount(); // Heap counters before the search
+        long pops = forwardHeap.getPopCount() + backwardHeap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        forward.setDistance(source, 0.0, -1);
+        forwardHeap.insert(source, 0.0);
+        backward.setDistance(destination, 0.0, -1);
+        backwardHeap.insert(destination, 0.0);
+        if (source == destination) {
+            meeting.update(source, destination, 0.0);
+        }
+
+        try {
+            while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()
+                    && forwardHeap.getMinKey() + backwardHeap.getMinKey() < meeting.distance) {
+                if (forwardHeap.getMinKey() <= backwardHeap.getMinKey()) {
+                    relaxations += expandForward(graph, forward, backward, nodeType, meeting);
+                } else {
+                    relaxations += expandBackward(graph, forward, backward, nodeType, meeting);
+                }
+            }
+            return meeting.distance == Double.MAX_VALUE ? null : meeting;
+        } finally {
+            settledNodes.add(forward.getSettledCount() + backward.getSettledCount());
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.BIDIRECTIONAL,
+                        forward.getSettledCount() + backward.getSettledCount(), relaxations,
+                        forwardHeap.getPushCount() + backwardHeap.getPushCount() - pushes,
+                        forwardHeap.getPopCount() + backwardHeap.getPopCount() - pops);
+            }
+        }
+    }
+
+    /**
+     * Settles the closest node of the forward frontier and relaxes its outgoing edges.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param forward  the context of the search from the initial node
+     * @param backward the context of the search from the destination node
+     * @param nodeType the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @param meeting  the best connection found so far
+     * @return the number of edges examined
+     */
+    private static int expandForward(Graph graph, SearchContext forward, SearchContext backward,
+                                      int nodeType, Meeting meeting) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int currentNode = forward.getHeap().removeMin();
+        forward.settle(currentNode);
+        double currentDistance = forward.getDistance(currentNode);
+
+        for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+            int neighbor = targets[edge];
+            double travelTime = nodeType < 0 ? graph.getTravelTime(edge) : graph.getTravelTime(edge, nodeType);
+            if (travelTime == Double.MAX_VALUE) continue;
+
+            double newDistance = currentDistance + travelTime;
+            if (newDistance < forward.getDistance(neighbor)) {
+                forward.setDistance(neighbor, newDistance, currentNode);
+                forward.getHeap().insertOrDecrease(neighbor, newDistance);
+            }
+            double backwardDistance = backward.getDistance(neighbor);
+            if (backwardDistance != Double.MAX_VALUE) {
+                meeting.update(currentNode, neighbor, newDistance + backwardDistance);
+            }
+        }
+        return offsets[currentNode + 1] - offsets[currentNode];
+    }
+
+    /**
+     * Settles the closest node of the backward frontier and relaxes the edges entering it.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param forward  the context of the search from the initial node
+     * @param backward the context of the search from the destination node
+     * @param nodeType the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @param meeting  the best connection found so far
+     * @return the number of edges examined
+     */
+    private static int expandBackward(Graph graph, SearchContext forward, SearchContext backward,
+                                       int nodeType, Meeting meeting) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        int currentNode = backward.getHeap().removeMin();
+        backward.settle(currentNode);
+        double currentDistance = backward.getDistance(currentNode);
+
+        // Every edge into this node is blocked when the node itself is impassable under the cost rules
+        if (graph.isDiscovered(currentNode) && (nodeType < 0 || graph.getNodeType(currentNode) != nodeType)) {
+            return 0;
+        }
+        for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+            if (weights[edge] == Double.MAX_VALUE) continue;
+            int neighbor = targets[edge];
+
+            double newDistance = currentDistance + weights[edge];
+            if (newDistance < backward.getDistance(neighbor)) {
+                backward.setDistance(neighbor, newDistance, currentNode);
+                backward.getHeap().insertOrDecrease(neighbor, newDistance);
+            }
+            double forwardDistance = forward.getDistance(neighbor);
+            if (forwardDistance != Double.MAX_VALUE) {
+                meeting.update(neighbor, currentNode, forwardDistance + newDistance);
+            }
+        }
+        return offsets[currentNode + 1] - offsets[currentNode];
+    }
+
+    /**
+     * Finds the travel time of the cheapest edge between two neighbouring nodes.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param from     the id of the node the edge leaves
+     * @param to       the id of the node the edge enters
+     * @param nodeType the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @return the travel time of the edge
+     */
+    private static double travelTime(Graph graph, int from, int to, int nodeType) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double travelTime = Double.MAX_VALUE;
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (targets[edge] == to) {
+                travelTime = Math.min(travelTime,
+                        nodeType < 0 ? graph.getTravelTime(edge) : graph.getTravelTime(edge, nodeType));
+            }
+        }
+        return travelTime;
+    }
+
+    /**
+     * The best connection between the two search trees found so far.
+     */
+    private static class Meeting {
+        int forwardNode = -1; // Node on the forward side of the connecting edge
+        int backwardNode = -1; // Node on the backward side of the connecting edge
+        double distance = Double.MAX_VALUE; // Length of the path through the connection
+
+        /**
+         * Records a connection if it is shorter than the best one so far.
+         *
+         * @param forwardNode  the node reached by the forward search
+         * @param backwardNode the node reached by the backward search
+         * @param distance     the length of the path through the connection
+         */
+        void update(int forwardNode, int backwardNode, double distance) {
+            if (distance < this.distance) {
+                this.forwardNode = forwardNode;
+                this.backwardNode = backwardNode;
+                this.distance = distance;
+            }
+        }
+    }
+}
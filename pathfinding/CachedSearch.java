@@ -0,0 +1,272 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import data_structures.IntList;
+import data_structures.SearchContext;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.MapOverlay;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Dijkstra engine that keeps the shortest path tree of every search, keyed by source node and
+ * passable node type, and answers later queries from the same source out of it. A query whose
+ * destination was already settled costs one lookup, and one whose destination lies further out
+ * resumes the search from the stored frontier instead of starting over.
+ *
+ * <p>Every tree records the version of the map state it was computed on. When the state has moved
+ * on, the nodes discovered or changed since are replayed against the tree, and only a tree whose
+ * settled nodes contain or neighbour a changed node is discarded. The trees are bounded by their
+ * total number of stored nodes and evicted least recently used first.
+ */
+public class CachedSearch implements SearchEngine {
+    private final long capacity; // Largest number of stored tree nodes over all trees
+    private final LinkedHashMap<Long, ShortestPathTree> trees = new LinkedHashMap<>(16, 0.75f, true); // In LRU order
+    private Graph graph; // The view of the map the trees were computed on
+    private long storedNodes; // Number of nodes stored over all trees
+    private final LongAdder settledNodes = new LongAdder(); // Nodes settled by all searches so far
+    private final LongAdder hits = new LongAdder(); // Queries answered without searching
+    private final LongAdder misses = new LongAdder(); // Queries that started or resumed a search
+    private final LongAdder invalidations = new LongAdder(); // Trees discarded because the map changed
+
+    /**
+     * Constructs an engine keeping at most the given number of tree nodes.
+     *
+     * @param capacity the largest number of nodes stored over all trees
+     */
+    public CachedSearch(long capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        int destination = graph.getNodeId(destinationNode);
+        ShortestPathTree tree = getTree(graph, graph.getNodeId(initialNode), -1, destination);
+        return tree.isSettled(destination) ? tree.getPath(graph, destination) : null;
+    }
+
+    @Override
+    public double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        int destination = graph.getNodeId(destinationNode);
+        ShortestPathTree tree = getTree(graph, graph.getNodeId(initialNode), nodeType, destination);
+        return tree.isSettled(destination) ? tree.getDistance(destination) : 0.0;
+    }
+
+    @Override
+    public long getSettledCount() {
+        return settledNodes.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Retrieves a tree from the source that settled the destination, or that is complete if the
+     * destination cannot be reached, searching only if the cached tree falls short.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param source      the id of the source node
+     * @param nodeType    the type of discovered nodes treated as passable, or -1
+     * @param destination the id of the destination node
+     * @return the tree
+     */
+    private ShortestPathTree getTree(Graph graph, int source, int nodeType, int destination) {
+        ShortestPathTree tree = lookUp(graph, source, nodeType);
+        if (tree != null && (tree.isSettled(destination) || tree.isComplete())) {
+            hits.increment();
+            return tree;
+        }
+        misses.increment();
+        tree = search(graph, tree, source, nodeType, destination);
+        store(tree);
+        return tree;
+    }
+
+    /**
+     * Finds the cached tree of a source and brings it up to the current version of the map state,
+     * discarding it if a change since it was computed may have altered it.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param source   the id of the source node
+     * @param nodeType the type of discovered nodes treated as passable, or -1
+     * @return the valid tree, or {@code null} if there is none
+     */
+    private synchronized ShortestPathTree lookUp(Graph graph, int source, int nodeType) {
+        MapOverlay state = graph.getOverlay();
+        if (graph != this.graph) {
+            // Trees of another view of the map say nothing about this one
+            trees.clear();
+            storedNodes = 0;
+            this.graph = graph;
+            state.startChangeLog();
+        }
+
+        Long key = key(source, nodeType);
+        ShortestPathTree tree = trees.get(key);
+        if (tree == null || tree.getVersion() == state.getVersion()) {
+            return tree;
+        }
+        for (int version = tree.getVersion() + 1; version <= state.getVersion(); version++) {
+            int change = state.getChange(version);
+            int id = change >= 0 ? change : ~change;
+            // Discovering a node of the passable type leaves the travel times of a type-aware tree unchanged
+            if (change >= 0 && nodeType >= 0 && graph.getNodeType(id) == nodeType) continue;
+            if (tree.isAffectedBy(graph, id)) {
+                trees.remove(key);
+                storedNodes -= tree.size();
+                invalidations.increment();
+                return null;
+            }
+        }
+        tree = tree.atVersion(state.getVersion());
+        trees.put(key, tree);
+        return tree;
+    }
+
+    /**
+     * Caches a tree, replacing the previous tree of its source and evicting the least recently
+     * used trees beyond the capacity.
+     *
+     * @param tree the tree to cache
+     */
+    private synchronized void store(ShortestPathTree tree) {
+        ShortestPathTree replaced = trees.put(key(tree.getSource(), tree.getNodeType()), tree);
+        storedNodes += tree.size() - (replaced == null ? 0 : replaced.size());
+        Iterator<Map.Entry<Long, ShortestPathTree>> iterator = trees.entrySet().iterator();
+        while (storedNodes > capacity && iterator.hasNext()) {
+            storedNodes -= iterator.next().getValue().size();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source until the destination is settled or the frontier
+     * is exhausted, starting from the settled nodes and frontier of an earlier tree if there is one.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param base        the tree to resume, or {@code null} to start from the source
+     * @param source      the id of the source node
+     * @param nodeType    the type of discovered nodes treated as passable, or -1
+     * @param destination the id of the destination node
+     * @return the tree of the search
+     */
+    private ShortestPathTree search(Graph graph, ShortestPathTree base, int source, int nodeType, int destination) {
+        SearchContext context = SearchContext.get(graph.getNodeCount());
+        IndexedMinHeap minHeap = context.getHeap();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int version = graph.getOverlay().getVersion();
+        IntList settled = new IntList(); // Settled node ids in settling order
+        IntList reached = new IntList(); // Node ids in the order they were first reached
+
+        if (base == null) {
+            context.setDistance(source, 0.0, -1);
+            minHeap.insert(source, 0.0);
+            reached.add(source);
+        } else {
+            // Restore the earlier search: its settled nodes are final and its frontier is queued again
+            for (int i = 0; i < base.size(); i++) {
+                int id = base.getId(i);
+                context.setDistance(id, base.getDistanceAt(i), base.getPreviousAt(i));
+                if (i < base.getSettledCount()) {
+                    context.settle(id);
+                    settled.add(id);
+                } else {
+                    minHeap.insert(id, base.getDistanceAt(i));
+                    reached.add(id);
+                }
+            }
+        }
+        int restored = context.getSettledCount();
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = minHeap.getPushCount(); // Heap counters before the search
+        long pops = minHeap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        try {
+            while (!minHeap.isEmpty()) {
+                int currentNode = minHeap.removeMin();
+                context.settle(currentNode);
+                settled.add(currentNode);
+
+                // The destination's edges are relaxed too, so that the frontier is complete when the search is resumed
+                double currentDistance = context.getDistance(currentNode);
+                if (Metrics.ENABLED) relaxations += offsets[currentNode + 1] - offsets[currentNode];
+                for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    double travelTime = nodeType < 0 ? graph.getTravelTime(edge) : graph.getTravelTime(edge, nodeType);
+                    if (travelTime == Double.MAX_VALUE || context.isSettled(neighbor)) continue;
+
+                    double newDistance = currentDistance + travelTime;
+                    double oldDistance = context.getDistance(neighbor);
+                    if (newDistance < oldDistance) {
+                        if (oldDistance == Double.MAX_VALUE) {
+                            reached.add(neighbor);
+                        }
+                        context.setDistance(neighbor, newDistance, currentNode);
+                        minHeap.insertOrDecrease(neighbor, newDistance);
+                    }
+                }
+                if (currentNode == destination) {
+                    break;
+                }
+            }
+        } finally {
+            settledNodes.add(context.getSettledCount() - restored);
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.TREE_CACHE, context.getSettledCount() - restored,
+                        relaxations, minHeap.getPushCount() - pushes, minHeap.getPopCount() - pops);
+            }
+        }
+
+        // Keep the settled nodes followed by the frontier
+        int frontier = 0;
+        for (int i = 0; i < reached.size(); i++) {
+            if (!context.isSettled(reached.get(i))) frontier++;
+        }
+        int size = settled.size() + frontier;
+        int[] ids = new int[size];
+        double[] distances = new double[size];
+        int[] previous = new int[size];
+        int count = 0;
+        for (int i = 0; i < settled.size(); i++) {
+            ids[count++] = settled.get(i);
+        }
+        for (int i = 0; i < reached.size(); i++) {
+            if (!context.isSettled(reached.get(i))) ids[count++] = reached.get(i);
+        }
+        for (int i = 0; i < size; i++) {
+            distances[i] = context.getDistance(ids[i]);
+            previous[i] = context.getPrevious(ids[i]);
+        }
+        return new ShortestPathTree(source, nodeType, version, ids, distances, previous, settled.size());
+    }
+
+    /**
+     * Combines a source and a node type into a cache key.
+     *
+     * @param source   the id of the source node
+     * @param nodeType the type of discovered nodes treated as passable, or -1
+     * @return the key
+     */
+    private static Long key(int source, int nodeType) {
+        return ((long) source << 32) | (nodeType & 0xFFFFFFFFL);
+    }
+}
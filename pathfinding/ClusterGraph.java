@@ -0,0 +1,498 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import data_structures.IntList;
+import data_structures.LongIntHashMap;
+import models.Graph;
+
+import java.util.Arrays;
+
+/**
+ * The cluster abstraction of one view of a map used by {@link HierarchicalPlanner} (HPA*). The grid
+ * is cut into square tiles. Along every border between two tiles, each run of cells joined across
+ * the border by passable edges gets a transition, an edge between two entrance nodes: one in the
+ * middle of a short run, one at each end of a long one. Edges between tiles that do not join two
+ * grid neighbours become transitions of their own.
+ *
+ * <p>The travel times between the entrances of a tile, through the tile only, are computed the
+ * first time a search needs them and kept until a node on one of their paths is discovered, or a
+ * discovered node inside the tile changes type, which discards distances of that tile alone. The
+ * transitions only depend on which edges are passable as loaded, and their travel times are read live.
+ */
+final class ClusterGraph {
+    private static final int HEAP_ARITY = 4; // Arity of the priority queue of the tile searches
+    private static final int SINGLE_TRANSITION_LIMIT = 6; // Shortest border run given a transition at both ends
+    private static final double INFINITY = Double.POSITIVE_INFINITY; // Distance of unreachable nodes
+
+    private final Graph graph; // The view of the land being abstracted
+    private final Heuristic heuristic; // Estimate guiding the tile searches that stop at a node
+    private final int tileSize; // Number of cells along each side of a tile
+    private final int tilesY; // Number of tiles along the y axis
+    private final int[] entranceIds; // Node id of each entrance
+    private final int[] entranceSlots; // Position of each entrance among the entrances of its tile
+    private final LongIntHashMap entranceIndices; // Entrance index of each entrance's node id
+    private final int[][] tileEntrances; // Entrance indices of each tile, in slot order
+    private final int[] transitionFirst; // Start index of each entrance's transitions, length is entrance count + 1
+    private final int[] transitionTargets; // Entrance each transition leads to
+    private final int[] transitionEdges; // Graph edge of each transition
+    private final double[][] intraDistances; // Travel times between the entrances of each tile, NaN rows until computed
+    private final long[][] pathCells; // Bits of the tile cells on the shortest paths of each computed row
+    private final long[][] blockedCells; // Bits of the tile cells discovered when any computed row was searched
+    private final double[] tileDistances; // Distance of each cell of the searched tile, by position in the tile
+    private final int[] tilePrevious; // Predecessor node id of each cell of the searched tile
+    private final int[] tileStamps; // Search in which each cell of the tile was last written
+    private final IndexedMinHeap tileHeap; // Frontier of the tile searches, by position in the tile
+    private int tileSearch; // Number of the current tile search
+    private int searchX; // First column of the searched tile
+    private int searchY; // First row of the searched tile
+    private long settledCount; // Cells settled by all tile searches so far
+
+    /**
+     * Cuts a map into tiles and places the transitions between them.
+     *
+     * @param graph     the view of the land to abstract
+     * @param heuristic the estimate of the travel time between two nodes
+     * @param tileSize  the number of cells along each side of a tile
+     */
+    ClusterGraph(Graph graph, Heuristic heuristic, int tileSize) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.tileSize = tileSize;
+        int width = graph.getWidth();
+        int height = graph.getHeight();
+        int tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+
+        // Transitions as (from, to, edge) triples: first along the borders between tile columns, then rows
+        IntList transitions = new IntList();
+        for (int x = tileSize; x < width; x += tileSize) {
+            for (int y = 0; y < height; y += tileSize) {
+                addBorder(x - 1, y, 1, 0, 0, 1, Math.min(tileSize, height - y), transitions);
+            }
+        }
+        for (int y = tileSize; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                addBorder(x, y - 1, 0, 1, 1, 0, Math.min(tileSize, width - x), transitions);
+            }
+        }
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                int target = targets[edge];
+                int distance = Math.abs(target / height - id / height) + Math.abs(target % height - id % height);
+                if (weights[edge] != Double.MAX_VALUE && distance != 1 && getTile(target) != getTile(id)) {
+                    transitions.add(id);
+                    transitions.add(target);
+                    transitions.add(edge);
+                }
+            }
+        }
+
+        // Number the entrances and group them by tile
+        this.entranceIndices = new LongIntHashMap();
+        IntList ids = new IntList();
+        for (int i = 0; i < transitions.size(); i += 3) {
+            for (int end = 0; end < 2; end++) {
+                int id = transitions.get(i + end);
+                if (!entranceIndices.containsKey(id)) {
+                    entranceIndices.put(id, ids.size());
+                    ids.add(id);
+                }
+            }
+        }
+        int entranceCount = ids.size();
+        this.entranceIds = new int[entranceCount];
+        this.entranceSlots = new int[entranceCount];
+        int[] tileCounts = new int[tilesX * tilesY];
+        for (int e = 0; e < entranceCount; e++) {
+            entranceIds[e] = ids.get(e);
+            entranceSlots[e] = tileCounts[getTile(entranceIds[e])]++;
+        }
+        this.tileEntrances = new int[tileCounts.length][];
+        for (int tile = 0; tile < tileCounts.length; tile++) {
+            tileEntrances[tile] = new int[tileCounts[tile]];
+        }
+        for (int e = 0; e < entranceCount; e++) {
+            tileEntrances[getTile(entranceIds[e])][entranceSlots[e]] = e;
+        }
+
+        // Compress the transitions into adjacency arrays by entrance
+        this.transitionFirst = new int[entranceCount + 1];
+        for (int i = 0; i < transitions.size(); i += 3) {
+            transitionFirst[getEntrance(transitions.get(i)) + 1]++;
+        }
+        for (int e = 0; e < entranceCount; e++) {
+            transitionFirst[e + 1] += transitionFirst[e];
+        }
+        int[] next = Arrays.copyOf(transitionFirst, entranceCount);
+        this.transitionTargets = new int[transitions.size() / 3];
+        this.transitionEdges = new int[transitions.size() / 3];
+        for (int i = 0; i < transitions.size(); i += 3) {
+            int slot = next[getEntrance(transitions.get(i))]++;
+            transitionTargets[slot] = getEntrance(transitions.get(i + 1));
+            transitionEdges[slot] = transitions.get(i + 2);
+        }
+
+        this.intraDistances = new double[tileCounts.length][];
+        this.pathCells = new long[tileCounts.length][];
+        this.blockedCells = new long[tileCounts.length][];
+        int tileCells = tileSize * tileSize;
+        this.tileDistances = new double[tileCells];
+        this.tilePrevious = new int[tileCells];
+        this.tileStamps = new int[tileCells];
+        this.tileHeap = new IndexedMinHeap(HEAP_ARITY, 100);
+        this.tileHeap.ensureIdCapacity(tileCells);
+    }
+
+    /**
+     * Places the transitions across one side of a tile. The border is walked cell by cell on the
+     * near side, and every run of cells joined to their neighbour across the border gets its
+     * transitions in both directions.
+     *
+     * @param x           the x coordinate of the first cell on the near side
+     * @param y           the y coordinate of the first cell on the near side
+     * @param acrossX     the step along x from a cell to its neighbour across the border
+     * @param acrossY     the step along y from a cell to its neighbour across the border
+     * @param alongX      the step along x from a cell to the next one on the border
+     * @param alongY      the step along y from a cell to the next one on the border
+     * @param length      the number of cells on the border
+     * @param transitions receives the (from, to, edge) triples
+     */
+    private void addBorder(int x, int y, int acrossX, int acrossY, int alongX, int alongY, int length,
+                           IntList transitions) {
+        int height = graph.getHeight();
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int near = (x + i * alongX) * height + y + i * alongY;
+            boolean joined = i < length && findEdge(near, near + acrossX * height + acrossY) >= 0;
+            if (joined && runStart < 0) {
+                runStart = i;
+            } else if (!joined && runStart >= 0) {
+                int runLength = i - runStart;
+                if (runLength < SINGLE_TRANSITION_LIMIT) {
+                    addTransitions(x, y, acrossX, acrossY, alongX, alongY, runStart + runLength / 2, transitions);
+                } else {
+                    addTransitions(x, y, acrossX, acrossY, alongX, alongY, runStart, transitions);
+                    addTransitions(x, y, acrossX, acrossY, alongX, alongY, i - 1, transitions);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    /**
+     * Adds the transitions in both directions between a border cell and its neighbour across the border.
+     *
+     * @param x           the x coordinate of the first cell on the near side
+     * @param y           the y coordinate of the first cell on the near side
+     * @param acrossX     the step along x across the border
+     * @param acrossY     the step along y across the border
+     * @param alongX      the step along x along the border
+     * @param alongY      the step along y along the border
+     * @param position    the position of the cell on the border
+     * @param transitions receives the (from, to, edge) triples
+     */
+    private void addTransitions(int x, int y, int acrossX, int acrossY, int alongX, int alongY, int position,
+                                IntList transitions) {
+        int height = graph.getHeight();
+        int near = (x + position * alongX) * height + y + position * alongY;
+        int far = near + acrossX * height + acrossY;
+        for (int end = 0; end < 2; end++) {
+            int from = end == 0 ? near : far;
+            int to = end == 0 ? far : near;
+            int edge = findEdge(from, to);
+            if (edge >= 0) {
+                transitions.add(from);
+                transitions.add(to);
+                transitions.add(edge);
+            }
+        }
+    }
+
+    /**
+     * Finds the edge from one node to another that is passable as loaded.
+     *
+     * @param from the id of the node the edge leaves
+     * @param to   the id of the node the edge enters
+     * @return the edge index, or -1 if there is none
+     */
+    private int findEdge(int from, int to) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (targets[edge] == to && weights[edge] != Double.MAX_VALUE) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the tile of a node.
+     *
+     * @param id the node id
+     * @return the tile index
+     */
+    int getTile(int id) {
+        int height = graph.getHeight();
+        return (id / height / tileSize) * tilesY + (id % height) / tileSize;
+    }
+
+    /**
+     * Finds the entrance index of a node.
+     *
+     * @param id the node id
+     * @return the entrance index, or -1 if the node is not an entrance
+     */
+    int getEntrance(int id) {
+        return entranceIndices.getOrDefault(id, -1);
+    }
+
+    int getEntranceCount() {
+        return entranceIds.length;
+    }
+
+    int getEntranceId(int entrance) {
+        return entranceIds[entrance];
+    }
+
+    int getEntranceSlot(int entrance) {
+        return entranceSlots[entrance];
+    }
+
+    int[] getTileEntrances(int tile) {
+        return tileEntrances[tile];
+    }
+
+    int getTransitionFirst(int entrance) {
+        return transitionFirst[entrance];
+    }
+
+    int getTransitionTarget(int transition) {
+        return transitionTargets[transition];
+    }
+
+    int getTransitionEdge(int transition) {
+        return transitionEdges[transition];
+    }
+
+    long getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Retrieves the travel times from one entrance of a tile to the others through the tile only,
+     * computing them with a tile search if they were discarded. The rows of a tile are computed one
+     * at a time, as the entrances are reached by the abstract searches, and each row remembers the
+     * cells its shortest paths pass through.
+     *
+     * @param tile the tile index
+     * @param slot the slot of the entrance the travel times start from
+     * @return the travel time from the entrance in slot i to the one in slot j at i * count + j,
+     * infinite where there is no path inside the tile; only the row of the given slot is filled
+     */
+    double[] getIntraDistances(int tile, int slot) {
+        int[] entrances = tileEntrances[tile];
+        int count = entrances.length;
+        int words = (tileSize * tileSize + 63) >>> 6;
+        double[] distances = intraDistances[tile];
+        if (distances == null) {
+            distances = new double[count * count];
+            Arrays.fill(distances, Double.NaN);
+            intraDistances[tile] = distances;
+            pathCells[tile] = new long[count * words];
+            blockedCells[tile] = new long[words];
+        }
+        if (Double.isNaN(distances[slot * count])) {
+            int source = entranceIds[entrances[slot]];
+            searchTile(source, false, -1);
+            markBlockedCells(tile, blockedCells[tile]);
+            long[] cells = pathCells[tile];
+            Arrays.fill(cells, slot * words, (slot + 1) * words, 0L);
+            for (int j = 0; j < count; j++) {
+                int id = entranceIds[entrances[j]];
+                double distance = getTileDistance(id);
+                distances[slot * count + j] = distance;
+                if (distance == INFINITY) continue;
+                // Mark the path back to the source, up to where an earlier path joined it
+                for (; id != source; id = getTilePrevious(id)) {
+                    int cell = slot * (words << 6) + cell(id, graph.getHeight());
+                    if ((cells[cell >>> 6] & (1L << cell)) != 0) break;
+                    cells[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Marks the cells of a tile that are discovered, so that a later type change of one of them,
+     * which makes it passable again, is known to affect the rows computed now.
+     *
+     * @param tile    the tile index
+     * @param blocked the bitmap of the tile's blocked cells
+     */
+    private void markBlockedCells(int tile, long[] blocked) {
+        int height = graph.getHeight();
+        int x0 = tile / tilesY * tileSize;
+        int y0 = tile % tilesY * tileSize;
+        int lastX = Math.min(x0 + tileSize, graph.getWidth());
+        int lastY = Math.min(y0 + tileSize, height);
+        for (int x = x0; x < lastX; x++) {
+            for (int y = y0; y < lastY; y++) {
+                if (graph.isDiscovered(x * height + y)) {
+                    int cell = (x - x0) * tileSize + y - y0;
+                    blocked[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the travel times between the entrances of the tile of a discovered or changed node.
+     * A discovery only makes paths longer, so it discards the rows whose shortest paths enter the
+     * node. A type change makes the node passable again, which may open new paths through the tile
+     * if the node was discovered when its rows were computed, and then discards all of them.
+     *
+     * @param id         the id of the node
+     * @param typeChange {@code true} for a type change, {@code false} for a discovery
+     */
+    void invalidate(int id, boolean typeChange) {
+        int tile = getTile(id);
+        double[] distances = intraDistances[tile];
+        if (distances == null) {
+            return;
+        }
+        int height = graph.getHeight();
+        int cell = (id / height % tileSize) * tileSize + id % height % tileSize;
+        if (typeChange) {
+            long[] blocked = blockedCells[tile];
+            if ((blocked[cell >>> 6] & (1L << cell)) != 0) {
+                Arrays.fill(distances, Double.NaN);
+                Arrays.fill(blocked, 0L);
+            }
+            return;
+        }
+        int count = tileEntrances[tile].length;
+        int bitsPerRow = ((tileSize * tileSize + 63) >>> 6) << 6;
+        long[] cells = pathCells[tile];
+        for (int slot = 0; slot < count; slot++) {
+            int bit = slot * bitsPerRow + cell;
+            if ((cells[bit >>> 6] & (1L << bit)) != 0) {
+                Arrays.fill(distances, slot * count, (slot + 1) * count, Double.NaN);
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from a node over the cells of its tile only, following the travel
+     * time rules of {@link Graph#getTravelTime(int)}. A backward search computes the travel times
+     * from the cells to the node instead: the edges are added in both directions with the same
+     * travel time, and an edge is impassable when the node it enters is discovered. A search that
+     * stops at a node is guided towards it by the heuristic, as in A*.
+     *
+     * @param source   the id of the node the search starts from
+     * @param backward {@code true} to compute the travel times towards the node
+     * @param target   the id of a node to stop at once settled, or -1 to search the whole tile
+     */
+    void searchTile(int source, boolean backward, int target) {
+        int height = graph.getHeight();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        int tile = source / height / tileSize * tilesY + (source % height) / tileSize;
+        searchX = tile / tilesY * tileSize;
+        searchY = tile % tilesY * tileSize;
+        int lastX = Math.min(searchX + tileSize, graph.getWidth());
+        int lastY = Math.min(searchY + tileSize, height);
+        if (++tileSearch == Integer.MAX_VALUE) {
+            // Wrap around the stamps once every search number has been used
+            Arrays.fill(tileStamps, 0);
+            tileSearch = 1;
+        }
+
+        tileHeap.clear();
+        int sourceCell = cell(source, height);
+        tileDistances[sourceCell] = 0.0;
+        tilePrevious[sourceCell] = -1;
+        tileStamps[sourceCell] = tileSearch;
+        tileHeap.insert(sourceCell, 0.0);
+        while (!tileHeap.isEmpty()) {
+            int current = tileHeap.removeMin();
+            int currentId = (searchX + current / tileSize) * height + searchY + current % tileSize;
+            settledCount++;
+            if (currentId == target) {
+                return;
+            }
+            double currentDistance = tileDistances[current];
+            boolean enteredDiscovered = backward && graph.isDiscovered(currentId);
+            for (int edge = offsets[currentId]; edge < offsets[currentId + 1]; edge++) {
+                int neighbor = targets[edge];
+                int x = neighbor / height;
+                int y = neighbor % height;
+                if (x < searchX || x >= lastX || y < searchY || y >= lastY) continue;
+                double travelTime = backward ? (enteredDiscovered ? Double.MAX_VALUE : weights[edge])
+                        : graph.getTravelTime(edge);
+                if (travelTime == Double.MAX_VALUE) continue;
+
+                int neighborCell = (x - searchX) * tileSize + y - searchY;
+                double newDistance = currentDistance + travelTime;
+                if (tileStamps[neighborCell] != tileSearch || newDistance < tileDistances[neighborCell]) {
+                    tileDistances[neighborCell] = newDistance;
+                    tilePrevious[neighborCell] = currentId;
+                    tileStamps[neighborCell] = tileSearch;
+                    double estimate = target >= 0 ? heuristic.estimate(neighbor, target) : 0.0;
+                    tileHeap.insertOrDecrease(neighborCell, newDistance + estimate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the distance of a node in the latest tile search.
+     *
+     * @param id the node id
+     * @return the distance, infinite if the node was not reached or lies outside the tile
+     */
+    double getTileDistance(int id) {
+        int cell = cellOrNegative(id);
+        return cell >= 0 && tileStamps[cell] == tileSearch ? tileDistances[cell] : INFINITY;
+    }
+
+    /**
+     * Retrieves the predecessor of a node in the latest tile search.
+     *
+     * @param id the id of a node reached by the search
+     * @return the predecessor's id, or -1 for the node the search started from
+     */
+    int getTilePrevious(int id) {
+        return tilePrevious[cell(id, graph.getHeight())];
+    }
+
+    /**
+     * Computes the position of a node in the searched tile.
+     *
+     * @param id     the id of a node in the searched tile
+     * @param height the number of rows of the grid
+     * @return the position in the tile's arrays
+     */
+    private int cell(int id, int height) {
+        return (id / height - searchX) * tileSize + id % height - searchY;
+    }
+
+    /**
+     * Computes the position of a node in the searched tile, if it lies in it.
+     *
+     * @param id the node id
+     * @return the position in the tile's arrays, or -1 outside the tile
+     */
+    private int cellOrNegative(int id) {
+        int height = graph.getHeight();
+        int x = id / height - searchX;
+        int y = id % height - searchY;
+        return x >= 0 && x < tileSize && y >= 0 && y < tileSize ? x * tileSize + y : -1;
+    }
+}
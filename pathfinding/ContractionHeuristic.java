@@ -0,0 +1,147 @@
+package pathfinding;
+
+import data_structures.IntList;
+import models.DistanceMetric;
+import models.Graph;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Heuristic} that estimates with the exact shortest travel time over the base travel
+ * times, read from the {@link ContractionHierarchy} of the map. The hierarchy is customized once
+ * per map; discoveries and wizard choices never lower a travel time below its base value, so the
+ * estimate stays admissible and consistent for every state of the map, and the searches it guides
+ * absorb the changes on the live travel times instead of re-customizing the shortcuts. Where no
+ * discovered node is in the way, the searches expand little more than the path itself.
+ *
+ * <p>A search asks for the estimate between many nodes and one fixed node, its destination. That
+ * node is scanned once: the distances from its elimination tree ancestors are computed, and the
+ * distance of any other node is the best of its upward arcs followed by the distance of their
+ * heads, memoized along its own chain of ancestors. The scratch state is kept per thread.
+ *
+ * <p>The base metric is the same in both directions, and the fixed node is recognized on either
+ * side of the estimate. As with the landmark bounds, the distances are shrunk by a relative margin
+ * far larger than their rounding error, so that the estimate remains consistent after rounding.
+ */
+public class ContractionHeuristic extends Heuristic {
+    private static final double INFINITY = Double.POSITIVE_INFINITY; // Distance to an unreachable node
+
+    private final ContractionHierarchy hierarchy; // Hierarchy of the map
+    private final double[] travelTimes; // Customized base travel time of each arc
+    private final ThreadLocal<Potentials> potentials; // Scratch state of the calling thread
+
+    /**
+     * Constructs a heuristic for the given graph, building and customizing its hierarchy unless
+     * another view of the map did already.
+     *
+     * @param graph  the compressed adjacency of the land
+     * @param metric the distance metric of the coordinate bound, or {@code null} for none
+     */
+    public ContractionHeuristic(Graph graph, DistanceMetric metric) {
+        super(graph, metric);
+        this.hierarchy = ContractionHierarchy.of(graph);
+        this.travelTimes = hierarchy.getBaseTravelTimes();
+        int nodeCount = graph.getNodeCount();
+        this.potentials = ThreadLocal.withInitial(() -> new Potentials(nodeCount));
+    }
+
+    @Override
+    public double estimate(int from, int to) {
+        Potentials state = potentials.get();
+        int node;
+        if (to == state.anchor) {
+            node = from;
+        } else if (from == state.anchor) {
+            node = to;
+        } else {
+            // Fix the side that repeats between calls, usually the destination of a new search
+            int anchor = from == state.lastFrom ? from : to;
+            state.anchorAt(anchor);
+            node = anchor == to ? from : to;
+        }
+        state.lastFrom = from;
+
+        double distance = state.distanceTo(hierarchy.getRank(node));
+        return distance == INFINITY ? super.estimate(from, to) : Math.max(super.estimate(from, to), distance * SHRINK);
+    }
+
+    /**
+     * The distances of the nodes to one fixed node, computed on demand for one thread.
+     */
+    private final class Potentials {
+        private final double[] anchorDistances; // Distance of each elimination tree ancestor of the fixed node
+        private final double[] distances; // Memoized distance of each rank to the fixed node
+        private final int[] anchorStamps; // Generation in which each entry of anchorDistances was written
+        private final int[] stamps; // Generation in which each entry of distances was written
+        private final IntList pending = new IntList(); // Ancestors waiting for their distance
+        private int generation; // Generation of the current fixed node
+        private int anchor = -1; // Id of the fixed node, or -1 before the first estimate
+        private int lastFrom = -1; // First argument of the previous estimate
+
+        private Potentials(int nodeCount) {
+            this.anchorDistances = new double[nodeCount];
+            this.distances = new double[nodeCount];
+            this.anchorStamps = new int[nodeCount];
+            this.stamps = new int[nodeCount];
+        }
+
+        /**
+         * Fixes a node and scans its ancestors upward, discarding every memoized distance.
+         *
+         * @param id the id of the node to fix
+         */
+        private void anchorAt(int id) {
+            if (++generation == Integer.MAX_VALUE) {
+                // Wrap around the stamps once every generation has been used
+                Arrays.fill(anchorStamps, 0);
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+            anchor = id;
+            int start = hierarchy.getRank(id);
+            anchorDistances[start] = 0.0;
+            anchorStamps[start] = generation;
+            for (int rank = start; rank != -1; rank = hierarchy.getParent(rank)) {
+                if (anchorStamps[rank] != generation) continue;
+                double distance = anchorDistances[rank];
+                for (int arc = hierarchy.getUpFirst(rank); arc < hierarchy.getUpFirst(rank + 1); arc++) {
+                    int head = hierarchy.getArcHead(arc);
+                    double newDistance = distance + travelTimes[arc];
+                    if (anchorStamps[head] != generation || newDistance < anchorDistances[head]) {
+                        anchorDistances[head] = newDistance;
+                        anchorStamps[head] = generation;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Computes the distance of a node to the fixed node: the best of stopping at the node if it is
+         * an ancestor of the fixed node, and of taking any upward arc on to the distance of its head.
+         * The heads are ancestors of the node, so the missing distances along its chain of ancestors
+         * are computed from the top down.
+         *
+         * @param start the rank of the node
+         * @return the shortest travel time over the base travel times, or infinity if there is no path
+         */
+        private double distanceTo(int start) {
+            if (stamps[start] == generation) {
+                return distances[start];
+            }
+            pending.clear();
+            for (int rank = start; rank != -1 && stamps[rank] != generation; rank = hierarchy.getParent(rank)) {
+                pending.add(rank);
+            }
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                int rank = pending.get(i);
+                double best = anchorStamps[rank] == generation ? anchorDistances[rank] : INFINITY;
+                for (int arc = hierarchy.getUpFirst(rank); arc < hierarchy.getUpFirst(rank + 1); arc++) {
+                    best = Math.min(best, travelTimes[arc] + distances[hierarchy.getArcHead(arc)]);
+                }
+                distances[rank] = best;
+                stamps[rank] = generation;
+            }
+            return distances[start];
+        }
+    }
+}
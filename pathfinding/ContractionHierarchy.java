@@ -0,0 +1,228 @@
+package pathfinding;
+
+import data_structures.IntList;
+import models.Graph;
+
+import java.util.Arrays;
+
+/**
+ * A customizable contraction hierarchy (CCH) of a map. The nodes are ranked by nested dissection
+ * of the grid, so every region is separated from its neighbours by a line of cells ranked above
+ * both, and contracting the nodes in rank order yields the upward arcs: the passable edges plus
+ * the shortcuts between the higher neighbours of every contracted node. The order and the arcs
+ * depend only on which edges exist, not on their travel times.
+ *
+ * <p>The lowest upward neighbour of a node is its parent in the elimination tree, and every node
+ * reachable upward from a node is one of its ancestors, so a query only scans the chains of
+ * ancestors of its endpoints, without a priority queue.
+ */
+final class ContractionHierarchy {
+    private static final double INFINITY = Double.POSITIVE_INFINITY; // Travel time of an arc without an edge path
+    private static final int LEAF_CELLS = 16; // Largest grid region ranked without dissecting it further
+
+    private final int[] ranks; // Rank of each node id
+    private final int[] parents; // Parent of each rank in the elimination tree, or -1 for a root
+    private final int[] upFirst; // Start index of each rank's upward arcs, length is node count + 1
+    private final int[] arcHeads; // Higher rank of each arc, ascending within a tail
+    private final double[] arcWeights; // Base travel time of the edge behind each arc, infinite for a pure shortcut
+    private double[] baseTravelTimes; // Customized travel times of the arcs while nothing is discovered
+
+    /**
+     * Ranks the nodes and contracts them into the upward arcs.
+     *
+     * @param graph the compressed adjacency of the land
+     */
+    private ContractionHierarchy(Graph graph) {
+        int nodeCount = graph.getNodeCount();
+        int height = graph.getHeight();
+        int[] nodeIds = new int[nodeCount];
+        dissect(0, graph.getWidth(), 0, height, height, nodeIds, 0);
+        this.ranks = new int[nodeCount];
+        for (int rank = 0; rank < nodeCount; rank++) {
+            ranks[nodeIds[rank]] = rank;
+        }
+
+        // Seed the upward neighbours with the passable edges; edges impassable when loaded stay so
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        IntList[] upward = new IntList[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                if (weights[edge] == Double.MAX_VALUE || ranks[targets[edge]] <= ranks[id]) continue;
+                if (upward[ranks[id]] == null) upward[ranks[id]] = new IntList();
+                upward[ranks[id]].add(ranks[targets[edge]]);
+            }
+        }
+
+        // Contract in rank order: the higher neighbours of a node become neighbours of the lowest of them
+        int[][] heads = new int[nodeCount][];
+        int arcCount = 0;
+        for (int rank = 0; rank < nodeCount; rank++) {
+            heads[rank] = distinctSorted(upward[rank]);
+            upward[rank] = null;
+            int[] neighbours = heads[rank];
+            if (neighbours.length > 1) {
+                IntList lowest = upward[neighbours[0]];
+                if (lowest == null) lowest = upward[neighbours[0]] = new IntList();
+                for (int i = 1; i < neighbours.length; i++) {
+                    lowest.add(neighbours[i]);
+                }
+            }
+            arcCount += neighbours.length;
+        }
+
+        this.parents = new int[nodeCount];
+        this.upFirst = new int[nodeCount + 1];
+        this.arcHeads = new int[arcCount];
+        int arc = 0;
+        for (int rank = 0; rank < nodeCount; rank++) {
+            upFirst[rank] = arc;
+            parents[rank] = heads[rank].length > 0 ? heads[rank][0] : -1;
+            for (int head : heads[rank]) {
+                arcHeads[arc++] = head;
+            }
+            heads[rank] = null;
+        }
+        upFirst[nodeCount] = arc;
+
+        // Remember the base travel time of the arcs standing for an edge, the lowest one for parallel edges
+        this.arcWeights = new double[arcCount];
+        Arrays.fill(arcWeights, INFINITY);
+        for (int id = 0; id < nodeCount; id++) {
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                if (weights[edge] == Double.MAX_VALUE || ranks[targets[edge]] <= ranks[id]) continue;
+                int edgeArc = Arrays.binarySearch(arcHeads, upFirst[ranks[id]], upFirst[ranks[id] + 1],
+                        ranks[targets[edge]]);
+                arcWeights[edgeArc] = Math.min(arcWeights[edgeArc], weights[edge]);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the hierarchy of a map, building it the first time any view of the map asks for it,
+     * so that simulations over several views of one map share it.
+     *
+     * @param graph the compressed adjacency of the land
+     * @return the hierarchy
+     */
+    static ContractionHierarchy of(Graph graph) {
+        return graph.getDerived("contraction-hierarchy", ContractionHierarchy::new);
+    }
+
+    int getRank(int id) {
+        return ranks[id];
+    }
+
+    int getParent(int rank) {
+        return parents[rank];
+    }
+
+    int getUpFirst(int rank) {
+        return upFirst[rank];
+    }
+
+    int getArcHead(int arc) {
+        return arcHeads[arc];
+    }
+
+    /**
+     * Retrieves the travel times of the arcs customized for the base travel times of the edges,
+     * i.e. while nothing is discovered. The edges have the same travel time in both directions,
+     * so one travel time per arc serves both. They are customized on first use and shared.
+     *
+     * @return the travel time of each arc, not to be modified
+     */
+    synchronized double[] getBaseTravelTimes() {
+        if (baseTravelTimes == null) {
+            double[] travelTimes = arcWeights.clone();
+
+            // The arcs of a node are final once every lower node is processed; each pair of them then
+            // closes the lower triangle of the arc between their heads, which exists by construction
+            for (int rank = 0; rank < parents.length; rank++) {
+                int lastArc = upFirst[rank + 1];
+                for (int lowArc = upFirst[rank]; lowArc < lastArc; lowArc++) {
+                    int above = upFirst[arcHeads[lowArc]];
+                    for (int highArc = lowArc + 1; highArc < lastArc; highArc++) {
+                        // The heads of both lists ascend, so the arc is found by walking forward
+                        while (arcHeads[above] != arcHeads[highArc]) above++;
+                        travelTimes[above] = Math.min(travelTimes[above], travelTimes[lowArc] + travelTimes[highArc]);
+                    }
+                }
+            }
+            baseTravelTimes = travelTimes;
+        }
+        return baseTravelTimes;
+    }
+
+    /**
+     * Ranks the cells of a grid region by nested dissection: both halves of the region first, then
+     * the line of cells separating them.
+     *
+     * @param x0      the first column of the region
+     * @param x1      the column after the region
+     * @param y0      the first row of the region
+     * @param y1      the row after the region
+     * @param height  the number of rows of the grid, used to encode node ids
+     * @param nodeIds receives the node id of each rank
+     * @param next    the next rank to assign
+     * @return the next rank after the region
+     */
+    private static int dissect(int x0, int x1, int y0, int y1, int height, int[] nodeIds, int next) {
+        int width = x1 - x0;
+        int rows = y1 - y0;
+        if (width <= 0 || rows <= 0) {
+            return next;
+        }
+        if ((long) width * rows <= LEAF_CELLS) {
+            for (int x = x0; x < x1; x++) {
+                for (int y = y0; y < y1; y++) {
+                    nodeIds[next++] = x * height + y;
+                }
+            }
+            return next;
+        }
+
+        // Cut across the longer side
+        if (width >= rows) {
+            int middle = x0 + width / 2;
+            next = dissect(x0, middle, y0, y1, height, nodeIds, next);
+            next = dissect(middle + 1, x1, y0, y1, height, nodeIds, next);
+            for (int y = y0; y < y1; y++) {
+                nodeIds[next++] = middle * height + y;
+            }
+        } else {
+            int middle = y0 + rows / 2;
+            next = dissect(x0, x1, y0, middle, height, nodeIds, next);
+            next = dissect(x0, x1, middle + 1, y1, height, nodeIds, next);
+            for (int x = x0; x < x1; x++) {
+                nodeIds[next++] = x * height + middle;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Sorts a list of ranks and drops the repeated ones.
+     *
+     * @param list the ranks, or {@code null} for none
+     * @return the distinct ranks in ascending order
+     */
+    private static int[] distinctSorted(IntList list) {
+        if (list == null) {
+            return new int[0];
+        }
+        int[] values = new int[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = list.get(i);
+        }
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (count == 0 || values[i] != values[count - 1]) {
+                values[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+}
@@ -0,0 +1,388 @@
+package pathfinding;
+
+import data_structures.IntList;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Delta-stepping shortest paths, relaxing the frontier on all cores. Tentative distances are kept in
+ * buckets of width delta. Edges no longer than delta are light and may lead back into the bucket being
+ * processed, so the bucket's light edges are relaxed round after round until it stops changing; the
+ * heavy edges of everything it settled are relaxed once afterwards, since they always lead to a later
+ * bucket. Every round splits the frontier into chunks relaxed in parallel on the common fork-join pool,
+ * with distances lowered by compare-and-set; the improved nodes are put into buckets by the calling
+ * thread between rounds.
+ *
+ * <p>Adding a non-negative travel time never lowers a distance and preserves its order, so the search
+ * converges to the smallest sum over all paths, exactly the distance Dijkstra's algorithm settles. Maps
+ * with fewer nodes than the parallel threshold are searched by the sequential {@link AStarSearch}, as
+ * are the path queries, which only the route planners need.
+ */
+public class DeltaSteppingSearch implements SearchEngine {
+    private static final int CHUNK_SIZE = 512; // Frontier nodes relaxed by one fork-join task
+    private static final int MAX_BUCKETS = 1 << 16; // Largest number of buckets in the cyclic array
+    private static final long UNREACHED = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY); // Bits of no distance
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    private final AStarSearch sequentialSearch; // Engine for small maps and for the path queries
+    private final int parallelThreshold; // Node count from which the searches run in parallel
+    private final double delta; // Width of a bucket, in travel time
+    private final int bucketCount; // Buckets in the cyclic array, enough to hold every relaxed edge
+    private final LongAdder settledNodes = new LongAdder(); // Nodes settled by all delta-stepping searches so far
+
+    /**
+     * Constructs a delta-stepping engine for the given map.
+     *
+     * @param graph             the compressed adjacency of the land
+     * @param heuristic         the estimate guiding the sequential searches
+     * @param delta             the width of a bucket, or 0 to use the mean travel time of the passable edges
+     * @param parallelThreshold the node count below which the sequential engine is used
+     */
+    public DeltaSteppingSearch(Graph graph, Heuristic heuristic, double delta, int parallelThreshold) {
+        this.sequentialSearch = new AStarSearch(heuristic);
+        this.parallelThreshold = parallelThreshold;
+
+        // A relaxed edge lands at most the longest travel time past its bucket, which bounds the buckets in use
+        double maxWeight = 0.0;
+        double weightSum = 0.0;
+        long passable = 0;
+        for (double weight : graph.getWeights()) {
+            if (weight != Double.MAX_VALUE) {
+                maxWeight = Math.max(maxWeight, weight);
+                weightSum += weight;
+                passable++;
+            }
+        }
+        double width = delta > 0.0 ? delta : (passable > 0 ? weightSum / passable : 1.0);
+        width = Math.max(width, maxWeight / (MAX_BUCKETS - 2));
+        this.delta = width > 0.0 ? width : 1.0;
+        this.bucketCount = (int) (maxWeight / this.delta) + 2;
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        return sequentialSearch.findShortestPath(graph, initialNode, destinationNode);
+    }
+
+    @Override
+    public double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        if (graph.getNodeCount() < parallelThreshold) {
+            return sequentialSearch.findShortestPath(graph, initialNode, destinationNode, nodeType);
+        }
+        Workspace workspace = WORKSPACES.get();
+        if (workspace.inUse) {
+            workspace = new Workspace(); // Called again while this thread's search waits for its tasks
+        }
+        workspace.inUse = true;
+        try {
+            double distance = search(graph, workspace, graph.getNodeId(initialNode),
+                    graph.getNodeId(destinationNode), nodeType);
+            return distance == Double.POSITIVE_INFINITY ? 0.0 : distance;
+        } finally {
+            workspace.inUse = false;
+        }
+    }
+
+    /**
+     * Prices the node types one after the other, since each search already runs on all cores.
+     */
+    @Override
+    public double[] findShortestPaths(Graph graph, Node initialNode, Node destinationNode, int[] nodeTypes) {
+        if (graph.getNodeCount() < parallelThreshold) {
+            return SearchEngine.super.findShortestPaths(graph, initialNode, destinationNode, nodeTypes);
+        }
+        double[] pathDistances = new double[nodeTypes.length];
+        for (int i = 0; i < nodeTypes.length; i++) {
+            pathDistances[i] = findShortestPath(graph, initialNode, destinationNode, nodeTypes[i]);
+        }
+        return pathDistances;
+    }
+
+    @Override
+    public long getSettledCount() {
+        return settledNodes.sum() + sequentialSearch.getSettledCount();
+    }
+
+    /**
+     * Runs delta-stepping from the source until the bucket of the destination is settled.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param workspace   the calling thread's distances and buckets
+     * @param source      the id of the starting node
+     * @param destination the id of the destination node
+     * @param nodeType    the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @return the travel time to the destination, infinite if it cannot be reached
+     */
+    private double search(Graph graph, Workspace workspace, int source, int destination, int nodeType) {
+        workspace.reset(graph.getNodeCount(), bucketCount);
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long settled = 0; // Frontier nodes whose edges were relaxed
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+        long bucketInserts = 0; // Nodes put into buckets
+
+        workspace.lower(source, 0.0);
+        workspace.place(source, 0, bucketCount);
+        long bucket = 0; // Index of the bucket being processed
+        try {
+            while (workspace.pending > 0) {
+                // Skip to the next bucket holding a node; every bucket up to the destination's is final once passed
+                while (workspace.buckets[(int) (bucket % bucketCount)].size() == 0) {
+                    bucket++;
+                }
+                if ((long) (workspace.distance(destination) / delta) < bucket) {
+                    break;
+                }
+
+                // Relax the light edges of the bucket until no node falls back into it
+                workspace.settledInBucket.clear();
+                workspace.phase++;
+                while (workspace.collectFrontier(bucket, delta, bucketCount)) {
+                    settled += workspace.frontier.size();
+                    if (Metrics.ENABLED) relaxations += countEdges(graph, workspace.frontier);
+                    bucketInserts += relax(graph, workspace, workspace.frontier, nodeType, true);
+                }
+
+                // Heavy edges lead past the bucket, so they are relaxed once per node settled in it; a node
+                // they lower into this bucket through rounding is processed again by the next pass
+                if (Metrics.ENABLED) relaxations += countEdges(graph, workspace.settledInBucket);
+                bucketInserts += relax(graph, workspace, workspace.settledInBucket, nodeType, false);
+            }
+            return workspace.distance(destination);
+        } finally {
+            workspace.clear();
+            settledNodes.add(settled);
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.DELTA_STEPPING, settled, relaxations,
+                        bucketInserts + 1, settled);
+            }
+        }
+    }
+
+    /**
+     * Relaxes the light or the heavy edges of a list of nodes, in parallel chunks when the list is
+     * long enough, then puts every improved node into the bucket of its new distance.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param space    the calling thread's distances and buckets
+     * @param nodes    the nodes whose edges are relaxed
+     * @param nodeType the type of discovered nodes treated as passable, or -1
+     * @param light    {@code true} to relax the edges no longer than delta, {@code false} the others
+     * @return the number of nodes put into buckets
+     */
+    private long relax(Graph graph, Workspace space, IntList nodes, int nodeType, boolean light) {
+        int chunks = (nodes.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        space.ensureChunks(chunks);
+        IntStream indices = IntStream.range(0, chunks);
+        (chunks > 1 ? indices.parallel() : indices).forEach(chunk ->
+                relaxChunk(graph, space, nodes, chunk, nodeType, light));
+
+        long inserted = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            IntList improved = space.improved[chunk];
+            for (int i = 0; i < improved.size(); i++) {
+                int id = improved.get(i);
+                space.place(id, (long) (space.distance(id) / delta), bucketCount);
+            }
+            inserted += improved.size();
+        }
+        return inserted;
+    }
+
+    /**
+     * Relaxes the edges of one chunk of nodes, lowering the distances with compare-and-set.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param space    the distances and the chunk's list of improved nodes
+     * @param nodes    the nodes whose edges are relaxed
+     * @param chunk    the index of the chunk
+     * @param nodeType the type of discovered nodes treated as passable, or -1
+     * @param light    {@code true} to relax the edges no longer than delta, {@code false} the others
+     */
+    private void relaxChunk(Graph graph, Workspace space, IntList nodes, int chunk, int nodeType, boolean light) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        IntList improved = space.improved[chunk];
+        improved.clear();
+        int last = Math.min(nodes.size(), (chunk + 1) * CHUNK_SIZE);
+        for (int i = chunk * CHUNK_SIZE; i < last; i++) {
+            int current = nodes.get(i);
+            double currentDistance = space.distance(current);
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                if ((weights[edge] <= delta) != light) continue;
+                double travelTime = nodeType < 0 ? graph.getTravelTime(edge) : graph.getTravelTime(edge, nodeType);
+                if (travelTime == Double.MAX_VALUE) continue;
+                if (space.lower(targets[edge], currentDistance + travelTime)) {
+                    improved.add(targets[edge]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the edges of a list of nodes.
+     *
+     * @param graph the compressed adjacency of the land
+     * @param nodes the nodes
+     * @return the number of edges leaving them
+     */
+    private static long countEdges(Graph graph, IntList nodes) {
+        int[] offsets = graph.getOffsets();
+        long count = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            count += offsets[nodes.get(i) + 1] - offsets[nodes.get(i)];
+        }
+        return count;
+    }
+
+    /**
+     * Per-thread distances and buckets. The distances are shared with the fork-join tasks of the
+     * search and written atomically; everything else is only touched by the thread that owns the
+     * search, between rounds. The nodes a search reached are reset when it ends.
+     */
+    private static class Workspace {
+        AtomicLongArray distances = new AtomicLongArray(0); // Bits of each node's tentative distance
+        double[] relaxedAt = new double[0]; // Distance each node had when its light edges were last relaxed
+        int[] stamps = new int[0]; // Bucket phase in which each node was last settled, -1 if only reached, 0 if not
+        IntList[] buckets = new IntList[0]; // Nodes of each bucket, cyclic, possibly stale or repeated
+        IntList[] improved = new IntList[0]; // Nodes improved by each chunk of the latest round
+        final IntList reached = new IntList(); // Nodes whose distance was lowered by the current search
+        final IntList frontier = new IntList(); // Nodes whose light edges are relaxed in the current round
+        final IntList settledInBucket = new IntList(); // Nodes settled in the current bucket
+        long pending; // Bucket entries not yet taken out
+        int phase; // Number of the current bucket phase
+        boolean inUse; // Whether a search of the owning thread is running
+
+        /**
+         * Prepares the workspace for a new search.
+         *
+         * @param nodeCount   the number of node ids of the graph
+         * @param bucketCount the number of buckets in the cyclic array
+         */
+        void reset(int nodeCount, int bucketCount) {
+            if (distances.length() < nodeCount) {
+                distances = new AtomicLongArray(nodeCount);
+                for (int id = 0; id < nodeCount; id++) {
+                    distances.set(id, UNREACHED);
+                }
+                relaxedAt = new double[nodeCount];
+                stamps = new int[nodeCount];
+            }
+            if (buckets.length < bucketCount) {
+                int old = buckets.length;
+                buckets = Arrays.copyOf(buckets, bucketCount);
+                for (int i = old; i < bucketCount; i++) {
+                    buckets[i] = new IntList();
+                }
+            }
+            phase = 0;
+        }
+
+        /**
+         * Resets the distances and stamps of the nodes the search reached and empties the buckets.
+         */
+        void clear() {
+            for (int i = 0; i < reached.size(); i++) {
+                distances.set(reached.get(i), UNREACHED);
+                stamps[reached.get(i)] = 0;
+            }
+            reached.clear();
+            for (IntList bucket : buckets) {
+                bucket.clear();
+            }
+            pending = 0;
+        }
+
+        /**
+         * Makes sure there is a list of improved nodes for every chunk of a round.
+         *
+         * @param chunks the number of chunks
+         */
+        void ensureChunks(int chunks) {
+            if (improved.length < chunks) {
+                int old = improved.length;
+                improved = Arrays.copyOf(improved, Math.max(chunks, 2 * old));
+                for (int i = old; i < improved.length; i++) {
+                    improved[i] = new IntList();
+                }
+            }
+        }
+
+        double distance(int id) {
+            return Double.longBitsToDouble(distances.get(id));
+        }
+
+        /**
+         * Lowers the distance of a node if the given one is shorter, safely against concurrent updates.
+         * Non-negative doubles order the same way as their bits, so the bits are compared directly.
+         *
+         * @param id       the node id
+         * @param distance the candidate distance
+         * @return {@code true} if the distance was lowered
+         */
+        boolean lower(int id, double distance) {
+            long bits = Double.doubleToRawLongBits(distance);
+            long current = distances.get(id);
+            while (bits < current) {
+                if (distances.compareAndSet(id, current, bits)) {
+                    return true;
+                }
+                current = distances.get(id);
+            }
+            return false;
+        }
+
+        /**
+         * Puts a node into a bucket, recording it as reached the first time.
+         *
+         * @param id          the node id
+         * @param bucket      the index of the bucket
+         * @param bucketCount the number of buckets in the cyclic array
+         */
+        void place(int id, long bucket, int bucketCount) {
+            if (stamps[id] == 0) {
+                stamps[id] = -1; // Reached, not settled in any phase yet
+                relaxedAt[id] = Double.POSITIVE_INFINITY;
+                reached.add(id);
+            }
+            buckets[(int) (bucket % bucketCount)].add(id);
+            pending++;
+        }
+
+        /**
+         * Takes the current bucket's nodes whose light edges have not been relaxed at their current
+         * distance, skipping the entries left behind by nodes that moved to an earlier bucket.
+         *
+         * @param bucket      the index of the bucket
+         * @param delta       the width of a bucket
+         * @param bucketCount the number of buckets in the cyclic array
+         * @return {@code true} if the frontier is not empty
+         */
+        boolean collectFrontier(long bucket, double delta, int bucketCount) {
+            IntList entries = buckets[(int) (bucket % bucketCount)];
+            frontier.clear();
+            for (int i = 0; i < entries.size(); i++) {
+                int id = entries.get(i);
+                double distance = distance(id);
+                if ((long) (distance / delta) != bucket || distance >= relaxedAt[id]) continue;
+                relaxedAt[id] = distance;
+                frontier.add(id);
+                if (stamps[id] != phase) {
+                    stamps[id] = phase;
+                    settledInBucket.add(id);
+                }
+            }
+            pending -= entries.size();
+            entries.clear();
+            return frontier.size() > 0;
+        }
+    }
+}
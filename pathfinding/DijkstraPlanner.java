@@ -0,0 +1,123 @@
+package pathfinding;
+
+import data_structures.LazyMinHeap;
+import data_structures.SearchContext;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+
+/**
+ * A route planner that runs a full forward Dijkstra search from the current position every time a
+ * route is needed. Nodes at equal distances are settled in the order of {@link LazyMinHeap}, so among
+ * routes of equal cost it always takes the same one, and the wizard's moves do not depend on the
+ * planner's history. Discoveries need no bookkeeping, since the next search reads the travel times
+ * of the view.
+ */
+public class DijkstraPlanner implements RoutePlanner {
+    private final Graph graph; // The land being planned on
+    private final int[] routeIndices; // Position of each node in the latest route
+    private final int[] routeStamps; // Route generation in which each node's position was last written
+    private int routeGeneration; // Generation of the latest route
+    private int goal = -1; // Id of the current goal node
+    private long expandedCount; // Number of nodes settled over the planner's lifetime
+
+    /**
+     * Constructs a planner for the given graph.
+     *
+     * @param graph the compressed adjacency of the land
+     */
+    public DijkstraPlanner(Graph graph) {
+        this.graph = graph;
+        this.routeIndices = new int[graph.getNodeCount()];
+        this.routeStamps = new int[graph.getNodeCount()];
+    }
+
+    @Override
+    public void setGoal(Node initialNode, Node destinationNode) {
+        goal = graph.getNodeId(destinationNode);
+    }
+
+    @Override
+    public void moveTo(Node node) {
+        // Every search starts from the position it is given
+    }
+
+    @Override
+    public void discoverNode(int id) {
+        // Every search reads the discoveries from the view
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Node initialNode) {
+        SearchContext context = SearchContext.get(graph.getNodeCount()); // Reused distances, predecessors and heap
+        LazyMinHeap minHeap = context.getRouteHeap();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int source = graph.getNodeId(initialNode);
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = minHeap.getPushCount(); // Heap counters before the search
+        long pops = minHeap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        context.setDistance(source, 0.0, -1);
+        minHeap.insert(source, 0.0);
+
+        ArrayList<Node> path = null;
+        while (!minHeap.isEmpty()) {
+            int currentNode = minHeap.removeMin();
+            if (context.isSettled(currentNode)) continue; // Skip the stale entries of settled nodes
+            context.settle(currentNode);
+
+            if (currentNode == goal) {
+                path = new ArrayList<>();
+                for (int current = goal; current != -1; current = context.getPrevious(current)) {
+                    path.add(graph.getNode(current));
+                }
+                break;
+            }
+
+            double currentDistance = context.getDistance(currentNode);
+            if (Metrics.ENABLED) relaxations += offsets[currentNode + 1] - offsets[currentNode];
+            for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                int neighbor = targets[edge];
+                double newDistance = currentDistance + graph.getTravelTime(edge);
+
+                if (newDistance < context.getDistance(neighbor)) {
+                    context.setDistance(neighbor, newDistance, currentNode);
+                    minHeap.insert(neighbor, newDistance);
+                }
+            }
+        }
+        expandedCount += context.getSettledCount();
+        if (Metrics.ENABLED) {
+            Metrics.endSearch(event, Metrics.Algorithm.DIJKSTRA, context.getSettledCount(), relaxations,
+                    minHeap.getPushCount() - pushes, minHeap.getPopCount() - pops);
+        }
+        if (path == null) {
+            return null;
+        }
+
+        // Remember where every node sits on the route for constant-time membership checks
+        routeGeneration++;
+        for (int i = 0; i < path.size(); i++) {
+            int id = graph.getNodeId(path.get(i));
+            routeIndices[id] = i;
+            routeStamps[id] = routeGeneration;
+        }
+        return path;
+    }
+
+    @Override
+    public int getRouteIndex(int id) {
+        return routeStamps[id] == routeGeneration ? routeIndices[id] : -1;
+    }
+
+    @Override
+    public long getExpandedCount() {
+        return expandedCount;
+    }
+}
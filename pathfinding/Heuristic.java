@@ -0,0 +1,46 @@
+package pathfinding;
+
+import models.DistanceMetric;
+import models.Graph;
+
+/**
+ * A goal-directed lower bound on the travel time between two nodes, derived from their grid coordinates.
+ * The metric distance is scaled by the smallest travel time per unit length seen on any passable edge,
+ * so the estimate never exceeds the true travel time and is consistent: searches guided by it still
+ * return optimal paths. The scale is shrunk by {@link #SHRINK} like the other bounds, so that the
+ * rounding of the metric length cannot lift an estimate above a summed travel time: a node is then
+ * settled with the same distance, to the last bit, as Dijkstra's algorithm gives it.
+ */
+public class Heuristic {
+    protected static final double SHRINK = 1.0 - 1e-9; // Scales summed distances below their rounding error
+
+    private final int height; // Number of rows of the grid, used to decode node ids
+    private final DistanceMetric metric; // Metric the coordinates are compared with, or null for none
+    private final double scale; // Travel time per unit of metric distance, shrunk below its rounding error
+
+    /**
+     * Constructs a heuristic for the given graph and metric.
+     *
+     * @param graph  the compressed adjacency of the land
+     * @param metric the distance metric, or {@code null} to always estimate 0 (plain Dijkstra)
+     */
+    public Heuristic(Graph graph, DistanceMetric metric) {
+        this.height = graph.getHeight();
+        this.metric = metric;
+        this.scale = metric == null ? 0.0 : graph.getMinTravelTimePerUnit(metric) * SHRINK;
+    }
+
+    /**
+     * Estimates the travel time between two nodes.
+     *
+     * @param from the id of the first node
+     * @param to   the id of the second node
+     * @return a lower bound on the travel time
+     */
+    public double estimate(int from, int to) {
+        if (scale == 0.0) {
+            return 0.0;
+        }
+        return scale * metric.length(from / height - to / height, from % height - to % height);
+    }
+}
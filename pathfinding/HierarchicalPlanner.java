@@ -0,0 +1,309 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import data_structures.IntList;
+import data_structures.LongIntHashMap;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.MapOverlay;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A hierarchical route planner (HPA*) for very large maps. Routes are planned with A* over the
+ * entrances of a {@link ClusterGraph}, joined by the travel times through each tile and across each
+ * border, and only the tiles the abstract route passes through are searched cell by cell to turn it
+ * into moves. The start and goal join the abstract graph through a search of their own tile.
+ *
+ * <p>Routes are optimal among those crossing the tile borders at the entrances, which keeps them
+ * within a few percent of the shortest route but not always on it. A discovery or a type change only
+ * discards entrance distances of the tile it happened in, read from the change log of the view; they
+ * are computed again the next time a route enters that tile. When the entrances cannot reach the
+ * goal, for example because the only way through a border avoids them, the route falls back to a
+ * flat A* search.
+ */
+public class HierarchicalPlanner implements RoutePlanner {
+    private static final int HEAP_ARITY = 4; // Arity of the priority queue
+    private static final double INFINITY = Double.POSITIVE_INFINITY; // Distance of unreachable nodes
+
+    private final Graph graph; // The land being planned on
+    private final Heuristic heuristic; // Estimate of the travel time between two nodes
+    private final ClusterGraph clusters; // Tiles, entrances and transitions of the land
+    private final AStarSearch fallback; // Flat search used when the entrances cannot reach the goal
+    private final MapOverlay overlay; // Discovery state whose changes discard entrance distances
+    private final double[] distances; // Abstract distance of each entrance, then of the start and the goal
+    private final int[] previous; // Abstract predecessor of each node
+    private final boolean[] crossed; // Whether each node was reached across a border rather than through a tile
+    private final int[] stamps; // Search in which each abstract node was last written
+    private final IndexedMinHeap queue; // Abstract frontier keyed by distance plus estimate
+    private final LongIntHashMap routeIndices; // Position of each node of the latest route by node id
+    private double[] startDistances = new double[0]; // Travel time from the start to each entrance of its tile
+    private double[] goalDistances = new double[0]; // Travel time from each entrance of the goal's tile to the goal
+    private int search; // Number of the current abstract search
+    private int syncedVersion; // Version of the discovery state the entrance distances reflect
+    private int goal = -1; // Id of the current goal node
+    private int start = -1; // Id of the current position
+    private long expandedCount; // Abstract nodes expanded plus cells settled over the planner's lifetime
+
+    /**
+     * Constructs a planner for the given graph, cutting it into tiles of the given size.
+     *
+     * @param graph     the compressed adjacency of the land
+     * @param heuristic the estimate of the remaining travel time
+     * @param tileSize  the number of cells along each side of a tile
+     */
+    public HierarchicalPlanner(Graph graph, Heuristic heuristic, int tileSize) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.clusters = new ClusterGraph(graph, heuristic, tileSize);
+        this.fallback = new AStarSearch(heuristic);
+        this.overlay = graph.getOverlay();
+        overlay.startChangeLog();
+        this.syncedVersion = overlay.getVersion();
+        int nodeCount = clusters.getEntranceCount() + 2;
+        this.distances = new double[nodeCount];
+        this.previous = new int[nodeCount];
+        this.crossed = new boolean[nodeCount];
+        this.stamps = new int[nodeCount];
+        this.queue = new IndexedMinHeap(HEAP_ARITY, 100);
+        this.queue.ensureIdCapacity(nodeCount);
+        this.routeIndices = new LongIntHashMap();
+    }
+
+    @Override
+    public void setGoal(Node initialNode, Node destinationNode) {
+        goal = graph.getNodeId(destinationNode);
+        start = graph.getNodeId(initialNode);
+    }
+
+    @Override
+    public void moveTo(Node node) {
+        start = graph.getNodeId(node);
+    }
+
+    @Override
+    public void discoverNode(int id) {
+        clusters.invalidate(id, false);
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Node initialNode) {
+        moveTo(initialNode);
+        synchronizeChanges();
+        ArrayList<Node> path = findAbstractPath();
+        if (path == null) {
+            // The entrances miss the way through, so search the whole land
+            long settled = fallback.getSettledCount();
+            path = fallback.findShortestPath(graph, initialNode, graph.getNode(goal));
+            expandedCount += fallback.getSettledCount() - settled;
+            if (path == null) {
+                return null;
+            }
+        }
+
+        // Remember where every node sits on the route for constant-time membership checks
+        routeIndices.clear();
+        for (int i = 0; i < path.size(); i++) {
+            routeIndices.put(graph.getNodeId(path.get(i)), i);
+        }
+        return path;
+    }
+
+    @Override
+    public int getRouteIndex(int id) {
+        return routeIndices.getOrDefault(id, -1);
+    }
+
+    @Override
+    public long getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * Discards the entrance distances of every tile changed since the last route, including the
+     * type changes made by the wizard's choices between objectives.
+     */
+    private void synchronizeChanges() {
+        int version = overlay.getVersion();
+        for (int v = syncedVersion + 1; v <= version; v++) {
+            int change = overlay.getChange(v);
+            clusters.invalidate(change < 0 ? ~change : change, change < 0);
+        }
+        syncedVersion = version;
+    }
+
+    /**
+     * Plans a route over the entrances and refines it into moves.
+     *
+     * @return a list of nodes from the goal back to the current position, or null if the entrances
+     * cannot reach the goal
+     */
+    private ArrayList<Node> findAbstractPath() {
+        if (start == goal) {
+            ArrayList<Node> path = new ArrayList<>();
+            path.add(graph.getNode(goal));
+            return path;
+        }
+        int entranceCount = clusters.getEntranceCount();
+        int sourceNode = entranceCount; // Abstract node of the start
+        int targetNode = entranceCount + 1; // Abstract node of the goal
+        int startTile = clusters.getTile(start);
+        int goalTile = clusters.getTile(goal);
+
+        // Join the start and the goal to the entrances of their tiles
+        int[] startEntrances = clusters.getTileEntrances(startTile);
+        int[] goalEntrances = clusters.getTileEntrances(goalTile);
+        long settled = clusters.getSettledCount();
+        clusters.searchTile(start, false, -1);
+        startDistances = readTileDistances(startEntrances, startDistances);
+        double direct = startTile == goalTile ? clusters.getTileDistance(goal) : INFINITY;
+        clusters.searchTile(goal, true, -1);
+        goalDistances = readTileDistances(goalEntrances, goalDistances);
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = queue.getPushCount();
+        long pops = queue.getPopCount();
+        long expanded = 0; // Abstract nodes expanded by this search
+        long relaxations = 0; // Abstract edges examined, counted only when metrics are enabled
+
+        if (++search == Integer.MAX_VALUE) {
+            // Wrap around the stamps once every search number has been used
+            Arrays.fill(stamps, 0);
+            search = 1;
+        }
+        queue.clear();
+        write(sourceNode, 0.0, -1, false);
+        queue.insert(sourceNode, heuristic.estimate(start, goal));
+        boolean found = false;
+        while (!queue.isEmpty()) {
+            int u = queue.removeMin();
+            expanded++;
+            if (u == targetNode) {
+                found = true;
+                break;
+            }
+            double distance = distances[u];
+            if (u == sourceNode) {
+                if (Metrics.ENABLED) relaxations += startEntrances.length + 1;
+                for (int slot = 0; slot < startEntrances.length; slot++) {
+                    relax(sourceNode, startEntrances[slot], startDistances[slot], false);
+                }
+                relax(sourceNode, targetNode, direct, false);
+                continue;
+            }
+
+            // Through the tile to its other entrances, and to the goal in the goal's tile
+            int id = clusters.getEntranceId(u);
+            int tile = clusters.getTile(id);
+            int[] entrances = clusters.getTileEntrances(tile);
+            int row = clusters.getEntranceSlot(u) * entrances.length;
+            double[] intra = clusters.getIntraDistances(tile, clusters.getEntranceSlot(u));
+            for (int slot = 0; slot < entrances.length; slot++) {
+                relax(u, entrances[slot], distance + intra[row + slot], false);
+            }
+            if (tile == goalTile) {
+                relax(u, targetNode, distance + goalDistances[clusters.getEntranceSlot(u)], false);
+            }
+
+            // Across the borders, at the travel time of the view
+            int last = clusters.getTransitionFirst(u + 1);
+            for (int transition = clusters.getTransitionFirst(u); transition < last; transition++) {
+                double travelTime = graph.getTravelTime(clusters.getTransitionEdge(transition));
+                if (travelTime == Double.MAX_VALUE) continue;
+                relax(u, clusters.getTransitionTarget(transition), distance + travelTime, true);
+            }
+            if (Metrics.ENABLED) relaxations += entrances.length + last - clusters.getTransitionFirst(u);
+        }
+        expandedCount += expanded;
+        if (Metrics.ENABLED) {
+            Metrics.endSearch(event, Metrics.Algorithm.HIERARCHICAL, expanded, relaxations,
+                    queue.getPushCount() - pushes, queue.getPopCount() - pops);
+        }
+
+        ArrayList<Node> path = found ? refine(sourceNode, targetNode) : null;
+        expandedCount += clusters.getSettledCount() - settled;
+        return path;
+    }
+
+    /**
+     * Copies the distances of the latest tile search to the entrances of the searched tile.
+     *
+     * @param entrances the entrance indices of the tile
+     * @param buffer    an array to reuse if it is large enough
+     * @return the distance of the entrance in slot i at index i
+     */
+    private double[] readTileDistances(int[] entrances, double[] buffer) {
+        double[] result = buffer.length >= entrances.length ? buffer : new double[entrances.length];
+        for (int slot = 0; slot < entrances.length; slot++) {
+            result[slot] = clusters.getTileDistance(clusters.getEntranceId(entrances[slot]));
+        }
+        return result;
+    }
+
+    /**
+     * Lowers the abstract distance of a node if the given one is shorter.
+     *
+     * @param from     the abstract node the edge leaves
+     * @param to       the abstract node the edge enters
+     * @param distance the distance of {@code to} through the edge
+     * @param border   {@code true} if the edge crosses a border
+     */
+    private void relax(int from, int to, double distance, boolean border) {
+        if (distance == INFINITY || (stamps[to] == search && distance >= distances[to])) {
+            return;
+        }
+        write(to, distance, from, border);
+        int id = to < clusters.getEntranceCount() ? clusters.getEntranceId(to) : goal;
+        queue.insertOrDecrease(to, distance + heuristic.estimate(id, goal));
+    }
+
+    /**
+     * Stores the abstract distance and predecessor of a node for the current search.
+     *
+     * @param node     the abstract node
+     * @param distance the distance from the start
+     * @param from     the predecessor, or -1
+     * @param border   {@code true} if the node was reached across a border
+     */
+    private void write(int node, double distance, int from, boolean border) {
+        distances[node] = distance;
+        previous[node] = from;
+        crossed[node] = border;
+        stamps[node] = search;
+    }
+
+    /**
+     * Turns the abstract route into moves: a border crossing is one move, and a segment through a
+     * tile is found again by a search of that tile stopping at the segment's end.
+     *
+     * @param sourceNode the abstract node of the start
+     * @param targetNode the abstract node of the goal
+     * @return a list of nodes from the goal back to the current position
+     */
+    private ArrayList<Node> refine(int sourceNode, int targetNode) {
+        ArrayList<Node> path = new ArrayList<>();
+        IntList segment = new IntList();
+        for (int node = targetNode; node != sourceNode; node = previous[node]) {
+            int to = node == targetNode ? goal : clusters.getEntranceId(node);
+            int from = previous[node] == sourceNode ? start : clusters.getEntranceId(previous[node]);
+            if (crossed[node]) {
+                path.add(graph.getNode(to));
+                continue;
+            }
+            // Walk the tile's shortest path back from the segment's end, leaving out its first node
+            clusters.searchTile(from, false, to);
+            segment.clear();
+            for (int id = to; id != from; id = clusters.getTilePrevious(id)) {
+                segment.add(id);
+            }
+            for (int i = 0; i < segment.size(); i++) {
+                path.add(graph.getNode(segment.get(i)));
+            }
+        }
+        path.add(graph.getNode(start));
+        return path;
+    }
+}
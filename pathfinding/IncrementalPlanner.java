@@ -0,0 +1,329 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+
+/**
+ * An incremental shortest path planner based on D* Lite. It searches backwards from the goal and
+ * keeps its distance estimates between moves, so when discovered nodes raise edge costs only the
+ * vertices whose distances are affected are repaired instead of running a full search again.
+ * The search is focused on the current position with a {@link Heuristic}.
+ * Since every edge is added in both directions with the same travel time, the predecessors of a
+ * node are read from its own adjacency. Its routes are as short as those of {@link DijkstraPlanner},
+ * but among routes of equal cost it may take another one: which route a forward Dijkstra search takes
+ * depends on the order it settles the nodes around the position, which a search kept from the goal
+ * has no record of. The wizard's moves, and the action log, therefore only stay the same on maps
+ * without such ties, and the simulation only uses this planner when asked to with
+ * {@code -Dwizard.planner=incremental}.
+ */
+public class IncrementalPlanner implements RoutePlanner {
+    private static final int HEAP_ARITY = 4; // Arity of the priority queue
+    private static final double INFINITY = Double.POSITIVE_INFINITY; // Distance of unreachable nodes
+
+    private final Graph graph; // The land being planned on
+    private final Heuristic heuristic; // Estimate of the travel time between the position and a node
+    private final double[] g; // Current distance estimate of each node to the goal
+    private final double[] rhs; // One-step lookahead distance of each node to the goal
+    private final int[] stamps; // Goal generation in which each node's estimates were last written
+    private final int[] routeIndices; // Position of each node in the latest route
+    private final int[] routeStamps; // Route generation in which each node's position was last written
+    private final IndexedMinHeap queue; // Locally inconsistent nodes keyed by [min(g, rhs) + h + km; min(g, rhs)]
+    private int generation; // Generation of the current goal
+    private int routeGeneration; // Generation of the latest route
+    private int goal = -1; // Id of the current goal node
+    private int start = -1; // Id of the current position
+    private double keyModifier; // Accumulated heuristic distance moved since the goal was set (km)
+    private long expandedCount; // Number of nodes expanded over the planner's lifetime
+
+    /**
+     * Constructs a planner for the given graph.
+     *
+     * @param graph     the compressed adjacency of the land
+     * @param heuristic the estimate of the remaining travel time
+     */
+    public IncrementalPlanner(Graph graph, Heuristic heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.g = new double[graph.getNodeCount()];
+        this.rhs = new double[graph.getNodeCount()];
+        this.stamps = new int[graph.getNodeCount()];
+        this.routeIndices = new int[graph.getNodeCount()];
+        this.routeStamps = new int[graph.getNodeCount()];
+        this.queue = new IndexedMinHeap(HEAP_ARITY, 100);
+        this.queue.ensureIdCapacity(graph.getNodeCount());
+    }
+
+    /**
+     * Starts planning from the given node towards a new goal, discarding all previous estimates in O(1).
+     *
+     * @param initialNode     the current position
+     * @param destinationNode the goal node
+     */
+    @Override
+    public void setGoal(Node initialNode, Node destinationNode) {
+        generation++;
+        queue.clear();
+        goal = graph.getNodeId(destinationNode);
+        start = graph.getNodeId(initialNode);
+        keyModifier = 0.0;
+        write(goal, INFINITY, 0.0);
+        enqueue(goal);
+    }
+
+    /**
+     * Moves the current position. Must be called before reporting the discoveries made at the new position.
+     *
+     * @param node the new position
+     */
+    @Override
+    public void moveTo(Node node) {
+        int id = graph.getNodeId(node);
+        keyModifier += heuristic.estimate(start, id);
+        start = id;
+    }
+
+    /**
+     * Notifies the planner that the node with the given id has been discovered.
+     *
+     * @param id the id of the discovered node
+     */
+    @Override
+    public void discoverNode(int id) {
+        if (stamps[id] != generation) {
+            return; // Never reached by the search, so no estimate depends on it
+        }
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+            updateVertex(targets[edge]);
+        }
+    }
+
+    /**
+     * Computes the shortest path from the given position to the goal, repairing only the estimates
+     * invalidated since the previous call.
+     *
+     * @param initialNode the current position
+     * @return a list of nodes from the goal back to the current position, or null if no path exists
+     */
+    @Override
+    public ArrayList<Node> findShortestPath(Node initialNode) {
+        moveTo(initialNode);
+        computeShortestPath();
+        if (getG(start) == INFINITY) {
+            return null;
+        }
+
+        // Follow the cheapest successors from the start, then reverse into the caller's order
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        ArrayList<Node> path = new ArrayList<>();
+        int current = start;
+        path.add(graph.getNode(current));
+        while (current != goal) {
+            int next = -1;
+            double best = INFINITY;
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                double candidate = cost(edge) + getG(targets[edge]);
+                if (candidate < best) {
+                    best = candidate;
+                    next = targets[edge];
+                }
+            }
+            current = next;
+            path.add(graph.getNode(current));
+        }
+        for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+            path.set(i, path.set(j, path.get(i)));
+        }
+
+        // Remember where every node sits on the route for constant-time membership checks
+        routeGeneration++;
+        for (int i = 0; i < path.size(); i++) {
+            int id = graph.getNodeId(path.get(i));
+            routeIndices[id] = i;
+            routeStamps[id] = routeGeneration;
+        }
+        return path;
+    }
+
+    /**
+     * Retrieves the position of a node in the route most recently returned by {@link #findShortestPath(Node)}.
+     *
+     * @param id the node id
+     * @return the index of the node in that route, or -1 if the node is not on it
+     */
+    @Override
+    public int getRouteIndex(int id) {
+        return routeStamps[id] == routeGeneration ? routeIndices[id] : -1;
+    }
+
+    /**
+     * Retrieves the number of nodes expanded over the planner's lifetime.
+     *
+     * @return the expanded node count
+     */
+    @Override
+    public long getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * Expands locally inconsistent nodes until the estimate of the start node is final.
+     */
+    private void computeShortestPath() {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long expanded = expandedCount; // Counters before the repair
+        long pushes = queue.getPushCount();
+        long pops = queue.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        while (!queue.isEmpty() && (keyLess(queue.getMinKey(), queue.getMinTieKey(), start)
+                || getG(start) != getRhs(start))) {
+            int u = queue.peekMin();
+            double oldKey = queue.getMinKey();
+            double oldTieKey = queue.getMinTieKey();
+            double gU = getG(u);
+            double rhsU = getRhs(u);
+            double newTieKey = Math.min(gU, rhsU);
+            double newKey = newTieKey + heuristic.estimate(start, u) + keyModifier;
+            if (oldKey < newKey || (oldKey == newKey && oldTieKey < newTieKey)) {
+                // The key is outdated since the position moved, so requeue it with the current one
+                queue.remove(u);
+                queue.insert(u, newKey, newTieKey);
+                continue;
+            }
+
+            queue.removeMin();
+            expandedCount++;
+            if (Metrics.ENABLED) relaxations += offsets[u + 1] - offsets[u];
+            if (gU > rhsU) {
+                // Overconsistent: the estimate improved, so lower the lookahead of every predecessor
+                write(u, rhsU, rhsU);
+                double costIntoU = graph.isDiscovered(u) ? INFINITY : 0.0;
+                for (int edge = offsets[u]; edge < offsets[u + 1]; edge++) {
+                    int predecessor = targets[edge];
+                    if (predecessor == goal) continue;
+                    double candidate = rhsU + reverseCost(edge, costIntoU);
+                    if (candidate < getRhs(predecessor)) {
+                        write(predecessor, getG(predecessor), candidate);
+                        enqueue(predecessor);
+                    }
+                }
+            } else {
+                // Underconsistent: the estimate got worse, so recompute the node and its predecessors
+                write(u, INFINITY, rhsU);
+                updateVertex(u);
+                for (int edge = offsets[u]; edge < offsets[u + 1]; edge++) {
+                    updateVertex(targets[edge]);
+                }
+            }
+        }
+
+        if (Metrics.ENABLED) {
+            Metrics.endSearch(event, Metrics.Algorithm.INCREMENTAL, expandedCount - expanded, relaxations,
+                    queue.getPushCount() - pushes, queue.getPopCount() - pops);
+        }
+    }
+
+    /**
+     * Checks whether a queue key orders strictly before the current key of the given node.
+     *
+     * @param key    the primary part of the queue key
+     * @param tieKey the secondary part of the queue key
+     * @param id     the node id
+     * @return {@code true} if the queue key is smaller
+     */
+    private boolean keyLess(double key, double tieKey, int id) {
+        double nodeTieKey = Math.min(getG(id), getRhs(id));
+        double nodeKey = nodeTieKey + heuristic.estimate(start, id) + keyModifier;
+        return key < nodeKey || (key == nodeKey && tieKey < nodeTieKey);
+    }
+
+    /**
+     * Recomputes the lookahead of a node from its successors and requeues it if it is inconsistent.
+     *
+     * @param id the node id
+     */
+    private void updateVertex(int id) {
+        if (id != goal) {
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            double best = INFINITY;
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                double candidate = cost(edge) + getG(targets[edge]);
+                if (candidate < best) {
+                    best = candidate;
+                }
+            }
+            write(id, getG(id), best);
+        }
+        enqueue(id);
+    }
+
+    /**
+     * Places a node in the queue under its current key if it is locally inconsistent, or removes it otherwise.
+     *
+     * @param id the node id
+     */
+    private void enqueue(int id) {
+        double gValue = getG(id);
+        double rhsValue = getRhs(id);
+        queue.remove(id);
+        if (gValue != rhsValue) {
+            double tieKey = Math.min(gValue, rhsValue);
+            queue.insert(id, tieKey + heuristic.estimate(start, id) + keyModifier, tieKey);
+        }
+    }
+
+    /**
+     * Gets the cost of an edge, treating the impassable travel time as infinite.
+     *
+     * @param edge the edge index
+     * @return the cost of the edge
+     */
+    private double cost(int edge) {
+        double travelTime = graph.getTravelTime(edge);
+        return travelTime == Double.MAX_VALUE ? INFINITY : travelTime;
+    }
+
+    /**
+     * Gets the cost of the reverse of an edge, i.e. of entering the edge's source from its destination.
+     *
+     * @param edge      the edge index
+     * @param costIntoU {@code INFINITY} if the edge's source is discovered, 0 otherwise
+     * @return the cost of the reverse edge
+     */
+    private double reverseCost(int edge, double costIntoU) {
+        double travelTime = graph.getWeights()[edge];
+        return travelTime == Double.MAX_VALUE ? INFINITY : travelTime + costIntoU;
+    }
+
+    private double getG(int id) {
+        return stamps[id] == generation ? g[id] : INFINITY;
+    }
+
+    private double getRhs(int id) {
+        return stamps[id] == generation ? rhs[id] : INFINITY;
+    }
+
+    /**
+     * Stores both estimates of a node for the current goal.
+     *
+     * @param id       the node id
+     * @param gValue   the distance estimate
+     * @param rhsValue the lookahead estimate
+     */
+    private void write(int id, double gValue, double rhsValue) {
+        g[id] = gValue;
+        rhs[id] = rhsValue;
+        stamps[id] = generation;
+    }
+}
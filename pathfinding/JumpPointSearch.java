@@ -0,0 +1,417 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import data_structures.SearchContext;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jump point search (JPS) over a {@link UniformGrid}. With one travel time per kind of step, most
+ * paths between two cells are symmetric reorderings of the same steps, and it is enough to follow
+ * one canonical order: from every expanded cell the search scans straight (and on 8-connected
+ * grids diagonal) lines over the passability bitmap, and only inserts the cells where a line has
+ * to turn, the jump points, into the priority queue. The jump points are settled A* style with a
+ * {@link Heuristic}, tightened by the number of steps left on the grid. On 4-connected grids the
+ * distances are the same as those of Dijkstra's algorithm over the edges; on 8-connected grids the
+ * straight and diagonal steps of a path may be added in another order, so the distances can differ
+ * from them in the last bits and equally short options may be told apart. The simulation therefore
+ * only picks this engine by itself on 4-connected grids.
+ *
+ * <p>Whether a cell can be entered is read from the grid and the discovery state of the view being
+ * searched, so the jumps follow discoveries and wizard choices without rebuilding anything. Node ids
+ * run along the columns, so the vertical scans read the bitmaps 64 cells at a time, and the other
+ * scans lean on them: on a 4-connected grid a horizontal scan stops where a vertical scan from it
+ * finds a jump point; on an 8-connected grid, where diagonal steps may pass between two blocked
+ * cells like the edges do, a diagonal scan stops where one of its straight scans finds one.
+ */
+public class JumpPointSearch implements SearchEngine {
+    private final UniformGrid grid; // Shape and passability bitmap of the map
+    private final Heuristic heuristic; // Estimate of the remaining travel time
+    private final LongAdder settledNodes = new LongAdder(); // Jump points settled by all searches so far
+
+    /**
+     * Constructs a jump point search engine for a uniform grid.
+     *
+     * @param grid      the uniform grid of the map
+     * @param heuristic the estimate of the remaining travel time
+     */
+    public JumpPointSearch(UniformGrid grid, Heuristic heuristic) {
+        this.grid = grid;
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        SearchContext context = SearchContext.get(graph.getNodeCount());
+        int destination = graph.getNodeId(destinationNode);
+        if (!search(graph, context, graph.getNodeId(initialNode), destination, -1)) {
+            return null;
+        }
+
+        // Backtrack over the jump points, filling in the cells of each straight or diagonal jump
+        ArrayList<Node> path = new ArrayList<>();
+        int height = graph.getHeight();
+        int current = destination;
+        for (int previous = context.getPrevious(current); previous != -1; previous = context.getPrevious(current)) {
+            int step = Integer.signum(previous / height - current / height) * height
+                    + Integer.signum(previous % height - current % height);
+            for (; current != previous; current += step) {
+                path.add(graph.getNode(current));
+            }
+        }
+        path.add(graph.getNode(current));
+        return path;
+    }
+
+    @Override
+    public double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        SearchContext context = SearchContext.get(graph.getNodeCount());
+        int destination = graph.getNodeId(destinationNode);
+        if (!search(graph, context, graph.getNodeId(initialNode), destination, nodeType)) {
+            return 0.0;
+        }
+        return context.getDistance(destination);
+    }
+
+    @Override
+    public long getSettledCount() {
+        return settledNodes.sum();
+    }
+
+    /**
+     * Retrieves the uniform-cost grid the engine searches.
+     *
+     * @return the grid of the map
+     */
+    public UniformGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Runs A* over the jump points until the destination is settled or the frontier is exhausted.
+     * The predecessor of each jump point is the jump point its line started from.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param context     the search context holding distances and predecessors
+     * @param source      the id of the starting node
+     * @param destination the id of the destination node
+     * @param nodeType    the type of discovered nodes treated as passable, or -1 to use the plain travel times
+     * @return {@code true} if the destination was reached, {@code false} otherwise
+     */
+    private boolean search(Graph graph, SearchContext context, int source, int destination, int nodeType) {
+        IndexedMinHeap minHeap = context.getHeap();
+        int height = graph.getHeight();
+        int[] directions = new int[16]; // Pairs of steps along x and y of the lines to scan
+
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = minHeap.getPushCount(); // Heap counters before the search
+        long pops = minHeap.getPopCount();
+        long relaxations = 0; // Lines scanned, counted only when metrics are enabled
+
+        context.setDistance(source, 0.0, -1);
+        minHeap.insert(source, estimate(source, destination), 0.0);
+
+        try {
+            while (!minHeap.isEmpty()) {
+                int currentNode = minHeap.removeMin();
+                context.settle(currentNode);
+                if (currentNode == destination) {
+                    return true;
+                }
+
+                double currentDistance = context.getDistance(currentNode);
+                int x = currentNode / height;
+                int y = currentNode % height;
+                int directionCount = successorDirections(graph, nodeType, x, y, context.getPrevious(currentNode),
+                        height, directions);
+                if (Metrics.ENABLED) relaxations += directionCount;
+                for (int i = 0; i < 2 * directionCount; i += 2) {
+                    int dx = directions[i];
+                    int dy = directions[i + 1];
+                    int jumpPoint = jump(graph, nodeType, destination, x, y, dx, dy);
+                    if (jumpPoint < 0 || context.isSettled(jumpPoint)) continue;
+
+                    // Add the steps one by one, as the edge by edge searches do
+                    double stepTravelTime = dx != 0 && dy != 0 ? grid.getDiagonalTravelTime()
+                            : grid.getStraightTravelTime();
+                    int steps = Math.max(Math.abs(jumpPoint / height - x), Math.abs(jumpPoint % height - y));
+                    double newDistance = currentDistance;
+                    for (int step = 0; step < steps; step++) {
+                        newDistance += stepTravelTime;
+                    }
+                    if (newDistance < context.getDistance(jumpPoint)) {
+                        context.setDistance(jumpPoint, newDistance, currentNode);
+                        // Among equal estimates prefer the node that is further along
+                        minHeap.insertOrDecrease(jumpPoint, newDistance + estimate(jumpPoint, destination),
+                                -newDistance);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            settledNodes.add(context.getSettledCount());
+            if (Metrics.ENABLED) {
+                Metrics.endSearch(event, Metrics.Algorithm.JUMP_POINT, context.getSettledCount(), relaxations,
+                        minHeap.getPushCount() - pushes, minHeap.getPopCount() - pops);
+            }
+        }
+    }
+
+    /**
+     * Estimates the remaining travel time with the best of the heuristic and the step bound of the
+     * grid. Both are consistent, and so is their maximum.
+     *
+     * @param from the id of the jump point
+     * @param to   the id of the destination node
+     * @return the estimate
+     */
+    private double estimate(int from, int to) {
+        return Math.max(heuristic.estimate(from, to), grid.getStepBound(from, to) * Heuristic.SHRINK);
+    }
+
+    /**
+     * Lists the directions worth scanning from a jump point: all of them from the source, otherwise
+     * the direction it was reached in and the turns that a path through its predecessor could not
+     * take as cheaply without passing through it.
+     *
+     * @param graph      the view of the map whose discovery state is read
+     * @param nodeType   the type of discovered nodes treated as passable, or -1
+     * @param x          the x coordinate of the jump point
+     * @param y          the y coordinate of the jump point
+     * @param previous   the id of the jump point it was reached from, or -1 for the source
+     * @param height     the number of rows of the grid
+     * @param directions receives the steps along x and y of each direction
+     * @return the number of directions
+     */
+    private int successorDirections(Graph graph, int nodeType, int x, int y, int previous, int height,
+                                    int[] directions) {
+        int count = 0;
+        if (previous < 0) {
+            // A source without passable edges, such as a cell of type 1, cannot be left
+            if (!grid.isOpen(x, y)) {
+                return 0;
+            }
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if ((dx == 0 && dy == 0) || (!grid.isDiagonal() && dx != 0 && dy != 0)) continue;
+                    count = add(directions, count, dx, dy);
+                }
+            }
+            return count;
+        }
+
+        int dx = Integer.signum(x - previous / height);
+        int dy = Integer.signum(y - previous % height);
+        if (!grid.isDiagonal()) {
+            // Straight on and both turns; the scans only stop where a turn is needed
+            count = add(directions, count, dx, dy);
+            count = add(directions, count, dy, dx);
+            return add(directions, count, -dy, -dx);
+        }
+        if (dx != 0 && dy != 0) {
+            count = add(directions, count, dx, dy);
+            count = add(directions, count, dx, 0);
+            count = add(directions, count, 0, dy);
+            if (!grid.isPassable(graph, x - dx, y, nodeType)) count = add(directions, count, -dx, dy);
+            if (!grid.isPassable(graph, x, y - dy, nodeType)) count = add(directions, count, dx, -dy);
+        } else {
+            count = add(directions, count, dx, dy);
+            // Diagonals past a blocked side cell, which a path through the predecessor cannot cut
+            if (!grid.isPassable(graph, x + dy, y + dx, nodeType)) count = add(directions, count, dx + dy, dy + dx);
+            if (!grid.isPassable(graph, x - dy, y - dx, nodeType)) count = add(directions, count, dx - dy, dy - dx);
+        }
+        return count;
+    }
+
+    /**
+     * Scans a line from a cell until it is blocked or reaches a jump point: the destination, a cell
+     * with a forced neighbour that only a path through it reaches optimally, or on a horizontal
+     * (4-connected) or diagonal (8-connected) line a cell from which a vertical or straight scan
+     * finds one.
+     *
+     * @param graph       the view of the map whose discovery state is read
+     * @param nodeType    the type of discovered nodes treated as passable, or -1
+     * @param destination the id of the destination node
+     * @param x           the x coordinate of the cell the scan starts from
+     * @param y           the y coordinate of the cell the scan starts from
+     * @param dx          the step along the x axis
+     * @param dy          the step along the y axis
+     * @return the id of the jump point, or -1 if the line is blocked first
+     */
+    private int jump(Graph graph, int nodeType, int destination, int x, int y, int dx, int dy) {
+        if (dx == 0) {
+            return scanColumn(graph, nodeType, destination, x, y, dy);
+        }
+        if (dy == 0 && !grid.isDiagonal()) {
+            return scanRow(graph, nodeType, destination, x, y, dx);
+        }
+        int height = graph.getHeight();
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!grid.isPassable(graph, x, y, nodeType)) {
+                return -1;
+            }
+            int id = x * height + y;
+            if (id == destination) {
+                return id;
+            }
+
+            if (dy != 0) {
+                if ((grid.isPassable(graph, x - dx, y + dy, nodeType)
+                        && !grid.isPassable(graph, x - dx, y, nodeType))
+                        || (grid.isPassable(graph, x + dx, y - dy, nodeType)
+                        && !grid.isPassable(graph, x, y - dy, nodeType))) {
+                    return id;
+                }
+                if (jump(graph, nodeType, destination, x, y, dx, 0) >= 0
+                        || scanColumn(graph, nodeType, destination, x, y, dy) >= 0) {
+                    return id;
+                }
+            } else {
+                if ((grid.isPassable(graph, x + dx, y + 1, nodeType) && !grid.isPassable(graph, x, y + 1, nodeType))
+                        || (grid.isPassable(graph, x + dx, y - 1, nodeType)
+                        && !grid.isPassable(graph, x, y - 1, nodeType))) {
+                    return id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans a row of a 4-connected grid from a cell, stopping at the destination, at a cell with a
+     * forced neighbour above or below, or at a cell from which a vertical scan finds a jump point.
+     * The passability of the 64 cells below and above the row is kept for the columns behind, at
+     * and ahead of the scanned cell, so every step reads one new column and the vertical scans
+     * mostly end within these words.
+     *
+     * @param graph       the view of the map whose discovery state is read
+     * @param nodeType    the type of discovered nodes treated as passable, or -1
+     * @param destination the id of the destination node
+     * @param x           the x coordinate of the cell the scan starts from
+     * @param y           the y coordinate of the row
+     * @param dx          the step along the x axis, 1 or -1
+     * @return the id of the jump point, or -1 if the row is blocked first
+     */
+    private int scanRow(Graph graph, int nodeType, int destination, int x, int y, int dx) {
+        int height = graph.getHeight();
+        int destinationX = destination / height;
+        int destinationY = destination % height;
+
+        // Rows y - 64 to y - 1 (below), y (row) and y + 1 to y + 64 (above) of three columns
+        long behindBelow = grid.passableBits(graph, x, y - 64, nodeType);
+        long behindAbove = grid.passableBits(graph, x, y + 1, nodeType);
+        long behindRow = grid.isPassable(graph, x, y, nodeType) ? 1L : 0L;
+        long below = grid.passableBits(graph, x + dx, y - 64, nodeType);
+        long above = grid.passableBits(graph, x + dx, y + 1, nodeType);
+        long row = grid.isPassable(graph, x + dx, y, nodeType) ? 1L : 0L;
+        while (true) {
+            x += dx;
+            if (row == 0) {
+                return -1;
+            }
+            int id = x * height + y;
+            if (id == destination) {
+                return id;
+            }
+
+            // Forced neighbours: open just below or above the row, but not in the column behind
+            if ((((below & ~behindBelow) >>> 63) | ((above & ~behindAbove) & 1)) != 0) {
+                return id;
+            }
+
+            long aheadBelow = grid.passableBits(graph, x + dx, y - 64, nodeType);
+            long aheadAbove = grid.passableBits(graph, x + dx, y + 1, nodeType);
+            long aheadRow = grid.isPassable(graph, x + dx, y, nodeType) ? 1L : 0L;
+
+            // Vertical scans, stopping where a side cell is open and the one before it along the column is not
+            long stopsAbove = ~above
+                    | (behindAbove & ~((behindAbove << 1) | behindRow))
+                    | (aheadAbove & ~((aheadAbove << 1) | aheadRow));
+            long stopsBelow = ~below
+                    | (behindBelow & ~((behindBelow >>> 1) | (behindRow << 63)))
+                    | (aheadBelow & ~((aheadBelow >>> 1) | (aheadRow << 63)));
+            if (destinationX == x && destinationY > y && destinationY <= y + 64) {
+                stopsAbove |= 1L << (destinationY - y - 1);
+            } else if (destinationX == x && destinationY < y && destinationY >= y - 64) {
+                stopsBelow |= 1L << (destinationY - y + 64);
+            }
+            if (stopsAbove == 0 ? scanColumn(graph, nodeType, destination, x, y + 64, 1) >= 0
+                    : (above & Long.lowestOneBit(stopsAbove)) != 0) {
+                return id;
+            }
+            if (stopsBelow == 0 ? scanColumn(graph, nodeType, destination, x, y - 64, -1) >= 0
+                    : (below & Long.highestOneBit(stopsBelow)) != 0) {
+                return id;
+            }
+
+            behindBelow = below;
+            behindAbove = above;
+            behindRow = row;
+            below = aheadBelow;
+            above = aheadAbove;
+            row = aheadRow;
+        }
+    }
+
+    /**
+     * Scans a column from a cell, 64 cells at a time. The cells where the scan stops are found with
+     * bitwise operations on the passability of the column and of the columns on both sides: a
+     * blocked cell, the destination, or a cell whose side neighbour is passable while the one next
+     * to it along the column is not, behind it on a 4-connected grid and ahead of it on an
+     * 8-connected grid.
+     *
+     * @param graph       the view of the map whose discovery state is read
+     * @param nodeType    the type of discovered nodes treated as passable, or -1
+     * @param destination the id of the destination node
+     * @param x           the x coordinate of the column
+     * @param y           the y coordinate of the cell the scan starts from
+     * @param dy          the step along the y axis, 1 or -1
+     * @return the id of the jump point, or -1 if the column is blocked first
+     */
+    private int scanColumn(Graph graph, int nodeType, int destination, int x, int y, int dy) {
+        int height = graph.getHeight();
+        int destinationRow = destination / height == x ? destination % height : -1;
+        int start = dy > 0 ? y + 1 : y - 64; // First row of the 64 cells scanned next
+        int neighbourStart = grid.isDiagonal() ? start + dy : start - dy;
+        while (true) {
+            long cells = grid.passableBits(graph, x, start, nodeType);
+            long stops = ~cells;
+            for (int side = x - 1; side <= x + 1; side += 2) {
+                long sides = grid.passableBits(graph, side, start, nodeType);
+                long neighbours = grid.passableBits(graph, side, neighbourStart, nodeType);
+                stops |= grid.isDiagonal() ? neighbours & ~sides : sides & ~neighbours;
+            }
+            if (destinationRow >= start && destinationRow < start + 64) {
+                stops |= 1L << (destinationRow - start);
+            }
+
+            if (stops != 0) {
+                int bit = dy > 0 ? Long.numberOfTrailingZeros(stops) : 63 - Long.numberOfLeadingZeros(stops);
+                return (cells & (1L << bit)) != 0 ? x * height + start + bit : -1;
+            }
+            start += 64 * dy;
+            neighbourStart += 64 * dy;
+        }
+    }
+
+    /**
+     * Appends a direction to the list of directions to scan.
+     *
+     * @param directions the steps along x and y of the directions so far
+     * @param count      the number of directions so far
+     * @param dx         the step along the x axis
+     * @param dy         the step along the y axis
+     * @return the new number of directions
+     */
+    private static int add(int[] directions, int count, int dx, int dy) {
+        directions[2 * count] = dx;
+        directions[2 * count + 1] = dy;
+        return count + 1;
+    }
+}
@@ -0,0 +1,190 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import models.DistanceMetric;
+import models.Graph;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Heuristic} tightened with landmarks (ALT). A few landmarks are picked far apart by
+ * farthest-point selection, and the distance from every landmark to every node is computed once.
+ * For any landmark L the triangle inequality gives {@code d(v, t) >= |d(L, t) - d(L, v)|}, and the
+ * estimate is the largest of these bounds and the metric bound.
+ *
+ * <p>The landmark distances are computed on the base travel times of the edges. Discovering a node
+ * only makes edges impassable and a wizard's choice only restores the base travel times, so no
+ * travel time ever drops below its base value: the bounds stay admissible and consistent for
+ * every search and every state of the map, and never have to be recomputed during a run.
+ * Only the edges and base travel times are read, so the tables are shared by all views of a map.
+ *
+ * <p>The difference of two rounded distances can exceed a travel time by a few ulps, which is
+ * enough for the incremental planner to follow a stale estimate in circles, so the landmark bounds
+ * are shrunk by a relative margin far larger than that error.
+ */
+public class LandmarkHeuristic extends Heuristic {
+    private static final int HEAP_ARITY = 4; // Arity of the priority queue of the preprocessing searches
+    private static final double UNREACHABLE = Double.MAX_VALUE; // Distance of nodes a landmark cannot reach
+
+    private final int[] landmarks; // Node ids of the landmarks
+    private final double[] distances; // Distance from landmark l to node v at v * landmarkCount + l
+
+    /**
+     * Selects the landmarks and computes their distance tables.
+     *
+     * @param graph         the compressed adjacency of the land
+     * @param metric        the distance metric of the coordinate bound, or {@code null} for none
+     * @param landmarkCount the number of landmarks to select
+     */
+    private LandmarkHeuristic(Graph graph, DistanceMetric metric, int landmarkCount) {
+        super(graph, metric);
+        int nodeCount = graph.getNodeCount();
+        double[] table = new double[Math.multiplyExact(nodeCount, landmarkCount)];
+
+        // Farthest-point selection: the first landmark is the node farthest from an arbitrary start,
+        // every next one the reachable node farthest from all landmarks chosen so far.
+        int[] chosen = new int[landmarkCount];
+        int count = 0;
+        int start = firstPassableNode(graph);
+        if (start >= 0) {
+            double[] distance = new double[nodeCount];
+            double[] nearest = new double[nodeCount]; // Distance of each node to its nearest chosen landmark
+            Arrays.fill(nearest, UNREACHABLE);
+            IndexedMinHeap heap = new IndexedMinHeap(HEAP_ARITY, 100);
+            heap.ensureIdCapacity(nodeCount);
+
+            int candidate = farthest(distances(graph, start, distance, heap));
+            while (count < landmarkCount && candidate >= 0) {
+                chosen[count] = candidate;
+                distances(graph, candidate, distance, heap);
+                for (int id = 0; id < nodeCount; id++) {
+                    table[id * landmarkCount + count] = distance[id];
+                    nearest[id] = Math.min(nearest[id], distance[id]);
+                }
+                count++;
+                candidate = farthest(nearest);
+            }
+        }
+
+        this.landmarks = Arrays.copyOf(chosen, count);
+        if (count < landmarkCount) {
+            // Fewer distinct reachable nodes than landmarks; drop the unused columns
+            double[] compact = new double[nodeCount * count];
+            for (int id = 0; id < nodeCount; id++) {
+                System.arraycopy(table, id * landmarkCount, compact, id * count, count);
+            }
+            table = compact;
+        }
+        this.distances = table;
+    }
+
+    /**
+     * Retrieves the landmark heuristic of a map, building its tables the first time any view of the
+     * map asks for them with the same metric and count, so that simulations over several views of one
+     * map share them.
+     *
+     * @param graph         the compressed adjacency of the land
+     * @param metric        the distance metric of the coordinate bound, or {@code null} for none
+     * @param landmarkCount the number of landmarks to select
+     * @return the heuristic
+     */
+    public static LandmarkHeuristic of(Graph graph, DistanceMetric metric, int landmarkCount) {
+        return graph.getDerived("landmarks/" + metric + "/" + landmarkCount,
+                map -> new LandmarkHeuristic(map, metric, landmarkCount));
+    }
+
+    @Override
+    public double estimate(int from, int to) {
+        double best = super.estimate(from, to);
+        int landmarkCount = landmarks.length;
+        int fromBase = from * landmarkCount;
+        int toBase = to * landmarkCount;
+        for (int l = 0; l < landmarkCount; l++) {
+            double fromDistance = distances[fromBase + l];
+            double toDistance = distances[toBase + l];
+            if (fromDistance == UNREACHABLE || toDistance == UNREACHABLE) continue;
+            double bound = Math.abs(toDistance - fromDistance) * SHRINK;
+            if (bound > best) {
+                best = bound;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Retrieves the node ids of the selected landmarks.
+     *
+     * @return the landmarks in selection order
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Finds the first node with a passable edge, where the landmark selection starts.
+     *
+     * @param graph the compressed adjacency of the land
+     * @return the node id, or -1 if no edge is passable
+     */
+    private static int firstPassableNode(Graph graph) {
+        int[] offsets = graph.getOffsets();
+        double[] weights = graph.getWeights();
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                if (weights[edge] != Double.MAX_VALUE) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Picks the node with the largest finite distance. Landmarks are at distance 0 from themselves,
+     * so none is picked twice.
+     *
+     * @param distance the distance of each node
+     * @return the node id, or -1 if no node has a positive finite distance
+     */
+    private static int farthest(double[] distance) {
+        int farthest = -1;
+        for (int id = 0; id < distance.length; id++) {
+            if (distance[id] != UNREACHABLE && (farthest < 0 || distance[id] > distance[farthest])) {
+                farthest = id;
+            }
+        }
+        return farthest >= 0 && distance[farthest] > 0.0 ? farthest : -1;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm over the base travel times from one node to every node.
+     *
+     * @param graph    the compressed adjacency of the land
+     * @param source   the id of the source node
+     * @param distance receives the distance of each node, {@link #UNREACHABLE} where there is no path
+     * @param heap     an empty priority queue to use
+     * @return the filled distance array
+     */
+    private static double[] distances(Graph graph, int source, double[] distance, IndexedMinHeap heap) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        Arrays.fill(distance, UNREACHABLE);
+        distance[source] = 0.0;
+        heap.insert(source, 0.0);
+        while (!heap.isEmpty()) {
+            int currentNode = heap.removeMin();
+            double currentDistance = distance[currentNode];
+            for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                if (weights[edge] == Double.MAX_VALUE) continue;
+                int neighbor = targets[edge];
+                double newDistance = currentDistance + weights[edge];
+                if (newDistance < distance[neighbor]) {
+                    distance[neighbor] = newDistance;
+                    heap.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+        }
+        return distance;
+    }
+}
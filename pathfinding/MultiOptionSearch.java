@@ -0,0 +1,250 @@
+package pathfinding;
+
+import data_structures.IndexedMinHeap;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prices several wizard options in a single traversal. Every node carries one distance label per
+ * option; the labels only diverge where a discovered node of an option's type is passable for that
+ * option alone. The frontier is shared and keyed by a node's smallest unsettled label, and all labels
+ * equal to that key are settled together, so regions no option affects are expanded once instead of
+ * once per option. The search is focused on the destination with a {@link Heuristic}.
+ */
+public class MultiOptionSearch implements SearchEngine {
+    private static final int HEAP_ARITY = 4; // Arity of the priority queue
+    private static final int MAX_OPTIONS = Long.SIZE; // Options tracked per node in a settled bit mask
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    private final Heuristic heuristic; // Estimate of the remaining travel time
+    private final AStarSearch pathSearch; // Engine for the queries that do not price options
+    private final LongAdder settledNodes = new LongAdder(); // Nodes settled by all multi-option searches so far
+
+    /**
+     * Constructs a multi-option engine guided by the given heuristic.
+     *
+     * @param heuristic the estimate of the remaining travel time
+     */
+    public MultiOptionSearch(Heuristic heuristic) {
+        this.heuristic = heuristic;
+        this.pathSearch = new AStarSearch(heuristic);
+    }
+
+    @Override
+    public ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode) {
+        return pathSearch.findShortestPath(graph, initialNode, destinationNode);
+    }
+
+    @Override
+    public double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType) {
+        return findShortestPaths(graph, initialNode, destinationNode, new int[]{nodeType})[0];
+    }
+
+    @Override
+    public double[] findShortestPaths(Graph graph, Node initialNode, Node destinationNode, int[] nodeTypes) {
+        // Price every distinct type once
+        int[] distinctTypes = Arrays.stream(nodeTypes).distinct().toArray();
+        if (distinctTypes.length > MAX_OPTIONS) {
+            return SearchEngine.super.findShortestPaths(graph, initialNode, destinationNode, nodeTypes);
+        }
+        double[] distinctDistances = search(graph, WORKSPACES.get(), graph.getNodeId(initialNode),
+                graph.getNodeId(destinationNode), distinctTypes);
+
+        double[] pathDistances = new double[nodeTypes.length];
+        for (int i = 0; i < nodeTypes.length; i++) {
+            for (int j = 0; j < distinctTypes.length; j++) {
+                if (distinctTypes[j] == nodeTypes[i]) {
+                    pathDistances[i] = distinctDistances[j];
+                }
+            }
+        }
+        return pathDistances;
+    }
+
+    @Override
+    public long getSettledCount() {
+        return settledNodes.sum() + pathSearch.getSettledCount();
+    }
+
+    /**
+     * Runs the shared-frontier search until the destination is settled for every option.
+     *
+     * @param graph       the compressed adjacency of the land
+     * @param workspace   the calling thread's labels and queue
+     * @param source      the id of the starting node
+     * @param destination the id of the destination node
+     * @param nodeTypes   the distinct node types to price, at most {@value #MAX_OPTIONS}
+     * @return the shortest path distance per node type, or 0.0 where no path exists
+     */
+    private double[] search(Graph graph, Workspace workspace, int source, int destination, int[] nodeTypes) {
+        int optionCount = nodeTypes.length;
+        workspace.reset(graph.getNodeCount(), optionCount);
+        double[] labels = workspace.labels;
+        long[] settled = workspace.settled;
+        IndexedMinHeap heap = workspace.heap;
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        long unsettledAtDestination = optionCount == Long.SIZE ? -1L : (1L << optionCount) - 1;
+        long settledCount = 0;
+        SearchEvent event = Metrics.ENABLED ? Metrics.beginSearch() : null;
+        long pushes = heap.getPushCount(); // Heap counters before the search
+        long pops = heap.getPopCount();
+        long relaxations = 0; // Edges examined, counted only when metrics are enabled
+
+        workspace.touch(source);
+        Arrays.fill(labels, source * optionCount, (source + 1) * optionCount, 0.0);
+        heap.insert(source, heuristic.estimate(source, destination));
+
+        while (!heap.isEmpty() && unsettledAtDestination != 0) {
+            int currentNode = heap.removeMin();
+            int base = currentNode * optionCount;
+            settledCount++;
+
+            // Settle every option whose label equals the smallest unsettled one
+            double currentDistance = minUnsettled(labels, base, optionCount, settled[currentNode]);
+            long newlySettled = 0;
+            for (int j = 0; j < optionCount; j++) {
+                if ((settled[currentNode] & (1L << j)) == 0 && labels[base + j] == currentDistance) {
+                    newlySettled |= 1L << j;
+                }
+            }
+            settled[currentNode] |= newlySettled;
+            if (currentNode == destination) {
+                unsettledAtDestination &= ~newlySettled;
+            }
+
+            // Relax the settled labels along every outgoing edge
+            if (Metrics.ENABLED) relaxations += offsets[currentNode + 1] - offsets[currentNode];
+            for (int edge = offsets[currentNode]; edge < offsets[currentNode + 1]; edge++) {
+                if (weights[edge] == Double.MAX_VALUE) continue;
+                int neighbor = targets[edge];
+                workspace.touch(neighbor);
+                boolean discovered = graph.isDiscovered(neighbor);
+                int neighborType = graph.getNodeType(neighbor);
+                int neighborBase = neighbor * optionCount;
+                double newDistance = currentDistance + weights[edge];
+                boolean improved = false;
+
+                for (int j = 0; j < optionCount; j++) {
+                    if ((newlySettled & (1L << j)) == 0) continue;
+                    if (discovered && neighborType != nodeTypes[j]) continue; // Impassable for this option
+                    if (newDistance < labels[neighborBase + j] && (settled[neighbor] & (1L << j)) == 0) {
+                        labels[neighborBase + j] = newDistance;
+                        improved = true;
+                    }
+                }
+                if (improved) {
+                    double key = minUnsettled(labels, neighborBase, optionCount, settled[neighbor])
+                            + heuristic.estimate(neighbor, destination);
+                    heap.insertOrDecrease(neighbor, key);
+                }
+            }
+
+            // Requeue the node if some options still have a larger tentative label here
+            double remaining = minUnsettled(labels, base, optionCount, settled[currentNode]);
+            if (remaining != Double.MAX_VALUE && !heap.contains(currentNode)) {
+                heap.insert(currentNode, remaining + heuristic.estimate(currentNode, destination));
+            }
+        }
+        settledNodes.add(settledCount);
+        if (Metrics.ENABLED) {
+            Metrics.endSearch(event, Metrics.Algorithm.MULTI_OPTION, settledCount, relaxations,
+                    heap.getPushCount() - pushes, heap.getPopCount() - pops);
+        }
+
+        double[] pathDistances = new double[optionCount];
+        if (workspace.isTouched(destination)) {
+            for (int j = 0; j < optionCount; j++) {
+                if ((settled[destination] & (1L << j)) != 0) {
+                    pathDistances[j] = labels[destination * optionCount + j];
+                }
+            }
+        }
+        return pathDistances;
+    }
+
+    /**
+     * Finds the smallest label of a node among the options not yet settled there.
+     *
+     * @param labels      the label array
+     * @param base        the index of the node's first label
+     * @param optionCount the number of options
+     * @param settledMask the options already settled at the node
+     * @return the smallest unsettled label, or {@code Double.MAX_VALUE} if there is none
+     */
+    private static double minUnsettled(double[] labels, int base, int optionCount, long settledMask) {
+        double min = Double.MAX_VALUE;
+        for (int j = 0; j < optionCount; j++) {
+            if ((settledMask & (1L << j)) == 0 && labels[base + j] < min) {
+                min = labels[base + j];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Per-thread labels, settled masks and queue, reset in O(1) between searches by generation stamps.
+     */
+    private static class Workspace {
+        double[] labels = new double[0]; // Label of option j at node v, stored at v * optionCount + j
+        long[] settled = new long[0]; // Bit mask of the options settled at each node
+        int[] stamps = new int[0]; // Generation in which each node was last touched
+        int generation; // Generation of the current search
+        int optionCount; // Number of options of the current search
+        final IndexedMinHeap heap = new IndexedMinHeap(HEAP_ARITY, 100); // Shared frontier
+
+        /**
+         * Prepares the workspace for a new search.
+         *
+         * @param nodeCount   the number of node ids of the graph
+         * @param optionCount the number of options priced together
+         */
+        void reset(int nodeCount, int optionCount) {
+            if (stamps.length < nodeCount) {
+                settled = new long[nodeCount];
+                stamps = new int[nodeCount];
+                generation = 0;
+            }
+            if (labels.length < (long) nodeCount * optionCount) {
+                labels = new double[Math.multiplyExact(nodeCount, optionCount)];
+            }
+            heap.ensureIdCapacity(nodeCount);
+            heap.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+            this.optionCount = optionCount;
+        }
+
+        /**
+         * Initializes a node's labels to unreachable the first time the current search sees it.
+         *
+         * @param id the node id
+         */
+        void touch(int id) {
+            if (stamps[id] != generation) {
+                stamps[id] = generation;
+                settled[id] = 0;
+                Arrays.fill(labels, id * optionCount, (id + 1) * optionCount, Double.MAX_VALUE);
+            }
+        }
+
+        /**
+         * Checks whether the current search has seen a node.
+         *
+         * @param id the node id
+         * @return {@code true} if the node has labels in the current search
+         */
+        boolean isTouched(int id) {
+            return stamps[id] == generation;
+        }
+    }
+}
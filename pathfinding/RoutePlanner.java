@@ -0,0 +1,58 @@
+package pathfinding;
+
+import models.Node;
+
+import java.util.ArrayList;
+
+/**
+ * Plans the wizard's routes to one objective at a time. The planner is told where the wizard moves
+ * and which nodes get discovered on the way, so that it can repair or redo its route when the
+ * route gets blocked.
+ */
+public interface RoutePlanner {
+    /**
+     * Starts planning from the given node towards a new goal.
+     *
+     * @param initialNode     the current position
+     * @param destinationNode the goal node
+     */
+    void setGoal(Node initialNode, Node destinationNode);
+
+    /**
+     * Moves the current position. Must be called before reporting the discoveries made at the new position.
+     *
+     * @param node the new position
+     */
+    void moveTo(Node node);
+
+    /**
+     * Notifies the planner that the node with the given id has been discovered, which makes every
+     * edge into it impassable.
+     *
+     * @param id the id of the discovered node
+     */
+    void discoverNode(int id);
+
+    /**
+     * Computes a route from the given position to the goal.
+     *
+     * @param initialNode the current position
+     * @return a list of nodes from the goal back to the current position, or null if no path exists
+     */
+    ArrayList<Node> findShortestPath(Node initialNode);
+
+    /**
+     * Retrieves the position of a node in the route most recently returned by {@link #findShortestPath(Node)}.
+     *
+     * @param id the node id
+     * @return the index of the node in that route, or -1 if the node is not on it
+     */
+    int getRouteIndex(int id);
+
+    /**
+     * Retrieves the number of nodes expanded over the planner's lifetime.
+     *
+     * @return the expanded node count
+     */
+    long getExpandedCount();
+}
@@ -0,0 +1,63 @@
+package pathfinding;
+
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * A shortest path algorithm over the compressed graph. Implementations follow the travel time rules
+ * of {@link models.Edge}: edges into discovered nodes are impassable, unless the node's type is the
+ * one treated as passable by the type-aware search.
+ */
+public interface SearchEngine {
+    /**
+     * Finds the shortest path between the initial node and the destination node.
+     *
+     * @param graph           the compressed adjacency of the land
+     * @param initialNode     the starting node
+     * @param destinationNode the destination node
+     * @return a list of nodes from the destination back to the starting node, or null if no path exists
+     */
+    ArrayList<Node> findShortestPath(Graph graph, Node initialNode, Node destinationNode);
+
+    /**
+     * Finds the shortest path distance between the initial node and the destination node, treating
+     * discovered nodes of the specified type as passable.
+     *
+     * @param graph           the compressed adjacency of the land
+     * @param initialNode     the starting node
+     * @param destinationNode the destination node
+     * @param nodeType        the type of nodes to consider for traversal
+     * @return the shortest path distance, or 0.0 if no path exists
+     */
+    double findShortestPath(Graph graph, Node initialNode, Node destinationNode, int nodeType);
+
+    /**
+     * Finds the shortest path distance between the initial node and the destination node once for
+     * every given node type. By default each type is priced by its own search, in parallel on the
+     * common fork-join pool; every search only reads the graph and uses its worker thread's own
+     * search context.
+     *
+     * @param graph           the compressed adjacency of the land
+     * @param initialNode     the starting node
+     * @param destinationNode the destination node
+     * @param nodeTypes       the node types to price
+     * @return the shortest path distance per node type, or 0.0 where no path exists
+     */
+    default double[] findShortestPaths(Graph graph, Node initialNode, Node destinationNode, int[] nodeTypes) {
+        double[] pathDistances = new double[nodeTypes.length];
+        IntStream indices = IntStream.range(0, nodeTypes.length);
+        (nodeTypes.length > 1 ? indices.parallel() : indices).forEach(i ->
+                pathDistances[i] = findShortestPath(graph, initialNode, destinationNode, nodeTypes[i]));
+        return pathDistances;
+    }
+
+    /**
+     * Retrieves the total number of nodes settled by this engine's searches so far.
+     *
+     * @return the settled node count
+     */
+    long getSettledCount();
+}
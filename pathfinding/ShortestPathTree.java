@@ -0,0 +1,182 @@
+package pathfinding;
+
+import data_structures.LongIntHashMap;
+import models.Graph;
+import models.Node;
+
+import java.util.ArrayList;
+
+/**
+ * The part of a Dijkstra search from one source that a {@link CachedSearch} keeps: the settled
+ * nodes with their final distances and predecessors, and the frontier of reached but unsettled
+ * nodes with their tentative ones, so that the search can later be resumed where it stopped.
+ * Trees are immutable; resuming a search produces a new tree.
+ */
+final class ShortestPathTree {
+    private final int source; // Id of the node the search started from
+    private final int nodeType; // Type of discovered nodes treated as passable, or -1
+    private final int version; // Version of the map state the tree is known to be valid for
+    private final int[] ids; // Settled node ids in settling order, then the frontier node ids
+    private final double[] distances; // Distance of each node of ids
+    private final int[] previous; // Predecessor of each node of ids, or -1 for the source
+    private final int settledCount; // Number of settled nodes at the start of ids
+    private final LongIntHashMap indices; // Position in ids of each stored node, keyed by node id
+
+    /**
+     * Constructs a tree from the nodes of a search.
+     *
+     * @param source       the id of the source node
+     * @param nodeType     the type of discovered nodes treated as passable, or -1
+     * @param version      the version of the map state the search ran on
+     * @param ids          the settled node ids in settling order followed by the frontier node ids
+     * @param distances    the distance of each node
+     * @param previous     the predecessor of each node
+     * @param settledCount the number of settled nodes
+     */
+    ShortestPathTree(int source, int nodeType, int version, int[] ids, double[] distances, int[] previous,
+                     int settledCount) {
+        this.source = source;
+        this.nodeType = nodeType;
+        this.version = version;
+        this.ids = ids;
+        this.distances = distances;
+        this.previous = previous;
+        this.settledCount = settledCount;
+        this.indices = new LongIntHashMap(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            indices.put(ids[i], i);
+        }
+    }
+
+    /**
+     * Creates the same tree marked as valid for a later version of the map state.
+     *
+     * @param version the later version
+     * @return the tree at that version
+     */
+    ShortestPathTree atVersion(int version) {
+        return new ShortestPathTree(this, version);
+    }
+
+    private ShortestPathTree(ShortestPathTree tree, int version) {
+        this.source = tree.source;
+        this.nodeType = tree.nodeType;
+        this.version = version;
+        this.ids = tree.ids;
+        this.distances = tree.distances;
+        this.previous = tree.previous;
+        this.settledCount = tree.settledCount;
+        this.indices = tree.indices;
+    }
+
+    int getSource() {
+        return source;
+    }
+
+    int getNodeType() {
+        return nodeType;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the number of nodes stored, settled or on the frontier.
+     *
+     * @return the size of the tree
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Checks whether the search settled every node reachable from the source.
+     *
+     * @return {@code true} if the frontier is empty
+     */
+    boolean isComplete() {
+        return settledCount == ids.length;
+    }
+
+    /**
+     * Checks whether a node was settled, i.e. whether its distance is final.
+     *
+     * @param id the node id
+     * @return {@code true} if the node is settled
+     */
+    boolean isSettled(int id) {
+        int index = indices.getOrDefault(id, -1);
+        return index >= 0 && index < settledCount;
+    }
+
+    /**
+     * Retrieves the distance of a settled node.
+     *
+     * @param id the id of a settled node
+     * @return the shortest path distance from the source
+     */
+    double getDistance(int id) {
+        return distances[indices.getOrDefault(id, -1)];
+    }
+
+    /**
+     * Builds the path from the source to a settled node.
+     *
+     * @param graph the compressed adjacency of the land
+     * @param id    the id of a settled node
+     * @return the nodes from the given node back to the source
+     */
+    ArrayList<Node> getPath(Graph graph, int id) {
+        ArrayList<Node> path = new ArrayList<>();
+        for (int current = id; current != -1; current = previous[indices.getOrDefault(current, -1)]) {
+            path.add(graph.getNode(current));
+        }
+        return path;
+    }
+
+    /**
+     * Checks whether a change of a node may alter the distances of this tree. The travel times
+     * into a node depend on its state, so a change can only affect the settled distances and the
+     * frontier if the node or one of its neighbours is settled.
+     *
+     * @param graph the compressed adjacency of the land
+     * @param id    the id of the changed node
+     * @return {@code true} if the tree must be discarded
+     */
+    boolean isAffectedBy(Graph graph, int id) {
+        if (isSettled(id)) {
+            return true;
+        }
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+            if (isSettled(targets[edge])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the node id at a position of the tree.
+     *
+     * @param index the position, settled nodes first
+     * @return the node id
+     */
+    int getId(int index) {
+        return ids[index];
+    }
+
+    double getDistanceAt(int index) {
+        return distances[index];
+    }
+
+    int getPreviousAt(int index) {
+        return previous[index];
+    }
+
+    int getSettledCount() {
+        return settledCount;
+    }
+}
@@ -0,0 +1,254 @@
+package pathfinding;
+
+import models.Graph;
+import models.MapOverlay;
+
+import java.util.Arrays;
+
+/**
+ * The shape of a map whose passable edges form a uniform-cost grid: every open cell is joined to
+ * each open cell around it, orthogonally (4-connected) or also diagonally (8-connected), with one
+ * travel time for all orthogonal and one for all diagonal edges, and there are no other edges. A
+ * cell is open when it has a passable edge; cells of type 1 have none. The open cells are kept as
+ * a packed bitmap, next to one bitmap per loaded node type, and whether a search may enter a cell
+ * combines them with the discovery state and type changes of the view being searched, so that
+ * {@link JumpPointSearch} can scan the grid without reading the edges, a word of 64 cells at a time
+ * along the columns.
+ */
+public final class UniformGrid {
+    private static final int MAX_INDEXED_TYPE = 255; // Largest node type given a bitmap of its open cells
+
+    private final int width; // Number of columns (x axis) of the grid
+    private final int height; // Number of rows (y axis) of the grid
+    private final boolean diagonal; // Whether diagonal neighbours are joined too
+    private final double straightTravelTime; // Travel time of every orthogonal edge
+    private final double diagonalTravelTime; // Travel time of every diagonal edge, 0 if there are none
+    private final long[] open; // Bit of each cell with a passable edge
+    private final long[][] typeBits; // Bitmap of the open cells of each loaded type, null when not indexed
+
+    private UniformGrid(int width, int height, boolean diagonal, double straightTravelTime,
+                        double diagonalTravelTime, long[] open, long[][] typeBits) {
+        this.width = width;
+        this.height = height;
+        this.diagonal = diagonal;
+        this.straightTravelTime = straightTravelTime;
+        this.diagonalTravelTime = diagonalTravelTime;
+        this.open = open;
+        this.typeBits = typeBits;
+    }
+
+    /**
+     * Retrieves the uniform grid of a map, detecting it the first time any view of the map asks, so
+     * that the simulations over several views of one map share the result.
+     *
+     * @param graph the compressed adjacency of the land
+     * @return the grid, or {@code null} if the edges do not form a uniform-cost grid
+     */
+    public static UniformGrid of(Graph graph) {
+        return graph.getDerived("uniform-grid", UniformGrid::detect);
+    }
+
+    /**
+     * Checks the edges of a map against the uniform grid they would have to form.
+     *
+     * @param graph the compressed adjacency of the land
+     * @return the grid, or {@code null} if the edges do not form one
+     */
+    private static UniformGrid detect(Graph graph) {
+        int width = graph.getWidth();
+        int height = graph.getHeight();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        int nodeCount = graph.getNodeCount();
+
+        // Record the neighbours each cell is joined to, as one bit per direction
+        long[] open = new long[(nodeCount + 63) >>> 6];
+        byte[] joined = new byte[nodeCount];
+        double straight = Double.NaN;
+        double diagonal = Double.NaN;
+        for (int id = 0; id < nodeCount; id++) {
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                if (weights[edge] == Double.MAX_VALUE) continue;
+                int dx = targets[edge] / height - id / height;
+                int dy = targets[edge] % height - id % height;
+                if (Math.abs(dx) > 1 || Math.abs(dy) > 1 || (dx == 0 && dy == 0)) {
+                    return null;
+                }
+                if (dx == 0 || dy == 0) {
+                    if (Double.isNaN(straight)) straight = weights[edge];
+                    if (weights[edge] != straight) return null;
+                } else {
+                    if (Double.isNaN(diagonal)) diagonal = weights[edge];
+                    if (weights[edge] != diagonal) return null;
+                }
+                joined[id] |= 1 << direction(dx, dy);
+                open[id >>> 6] |= 1L << id;
+            }
+        }
+        if (Double.isNaN(straight)) {
+            return null;
+        }
+
+        // Straight lines must stay optimal, and a diagonal step must cost less than its two sides, so that
+        // ties between turning early and late do not decide which lines get scanned
+        boolean diagonalGrid = !Double.isNaN(diagonal);
+        if (diagonalGrid && (diagonal < straight || diagonal >= 2 * straight)) {
+            return null;
+        }
+
+        // Index the open cells by loaded type, which a discovered cell keeps unless a choice changed it; absent
+        // types have no bitmap
+        long[][] typeBits = new long[0][];
+        for (int id = 0; id < nodeCount && typeBits != null; id++) {
+            if ((open[id >>> 6] & (1L << id)) == 0) continue;
+            int nodeType = graph.getBaseNodeType(id);
+            if (nodeType < 0 || nodeType > MAX_INDEXED_TYPE) {
+                typeBits = null;
+            } else {
+                if (nodeType >= typeBits.length) typeBits = Arrays.copyOf(typeBits, nodeType + 1);
+                if (typeBits[nodeType] == null) typeBits[nodeType] = new long[open.length];
+                typeBits[nodeType][id >>> 6] |= 1L << id;
+            }
+        }
+
+        // Every open cell must be joined to exactly its open neighbours
+        UniformGrid grid = new UniformGrid(width, height, diagonalGrid, straight, diagonalGrid ? diagonal : 0.0, open,
+                typeBits);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int id = x * height + y;
+                if (!grid.isOpen(x, y)) continue;
+                int expected = 0;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if ((dx == 0 && dy == 0) || (!diagonalGrid && dx != 0 && dy != 0)) continue;
+                        if (grid.isOpen(x + dx, y + dy)) expected |= 1 << direction(dx, dy);
+                    }
+                }
+                if ((joined[id] & 0xFF) != expected) {
+                    return null;
+                }
+            }
+        }
+        return grid;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    public double getStraightTravelTime() {
+        return straightTravelTime;
+    }
+
+    public double getDiagonalTravelTime() {
+        return diagonalTravelTime;
+    }
+
+    /**
+     * Bounds the travel time between two cells from below by the steps between them, as if nothing
+     * were in the way. A 4-connected grid needs one straight step per row and per column apart; an
+     * 8-connected grid covers the shorter side with diagonal steps.
+     *
+     * @param from the id of the first cell
+     * @param to   the id of the second cell
+     * @return the travel time over the fewest steps
+     */
+    public double getStepBound(int from, int to) {
+        int dx = Math.abs(to / height - from / height);
+        int dy = Math.abs(to % height - from % height);
+        if (!diagonal) {
+            return straightTravelTime * (dx + dy);
+        }
+        return diagonalTravelTime * Math.min(dx, dy) + straightTravelTime * Math.abs(dx - dy);
+    }
+
+    /**
+     * Checks whether a search may enter a cell: the cell must be open, and not discovered unless its
+     * type is the one treated as passable, following the rules of {@link Graph#getTravelTime(int, int)}.
+     *
+     * @param graph    the view of the map whose discovery state is read
+     * @param x        the x coordinate of the cell, possibly outside the grid
+     * @param y        the y coordinate of the cell, possibly outside the grid
+     * @param nodeType the type of discovered nodes treated as passable, or -1
+     * @return {@code true} if an edge into the cell can be traversed
+     */
+    public boolean isPassable(Graph graph, int x, int y, int nodeType) {
+        if (!isOpen(x, y)) {
+            return false;
+        }
+        int id = x * height + y;
+        return !graph.isDiscovered(id) || (nodeType >= 0 && graph.getNodeType(id) == nodeType);
+    }
+
+    /**
+     * Checks whether a search may enter each of 64 consecutive cells of a column at once. Node ids
+     * run along the columns, so the bits are read a word at a time from the bitmap of open cells
+     * and the discovery bitset of the view; only the discovered open cells are looked up by type.
+     *
+     * @param graph    the view of the map whose discovery state is read
+     * @param x        the x coordinate of the column, possibly outside the grid
+     * @param y        the y coordinate of the first cell, possibly outside the grid
+     * @param nodeType the type of discovered nodes treated as passable, or -1
+     * @return the passability of cell {@code (x, y + i)} at bit i, 0 outside the grid
+     */
+    long passableBits(Graph graph, int x, int y, int nodeType) {
+        int first = Math.max(y, 0);
+        int last = Math.min(y + 64, height);
+        if (x < 0 || x >= width || first >= last) {
+            return 0L;
+        }
+        int from = x * height + first;
+        long openBits = MapOverlay.bitsAt(open, from);
+        if (last - first < 64) {
+            openBits &= (1L << (last - first)) - 1;
+        }
+
+        MapOverlay overlay = graph.getOverlay();
+        long discoveredBits = openBits & overlay.getDiscoveredBits(from);
+        long bits = openBits & ~discoveredBits;
+        if (nodeType >= 0 && discoveredBits != 0) {
+            // Discovered cells of the passable type: read from the type bitmap unless their type changed
+            long lookups = discoveredBits;
+            if (typeBits != null) {
+                lookups &= overlay.getOverriddenBits(from);
+                if (nodeType < typeBits.length && typeBits[nodeType] != null) {
+                    bits |= discoveredBits & ~lookups & MapOverlay.bitsAt(typeBits[nodeType], from);
+                }
+            }
+            for (; lookups != 0; lookups &= lookups - 1) {
+                int bit = Long.numberOfTrailingZeros(lookups);
+                if (graph.getNodeType(from + bit) == nodeType) bits |= 1L << bit;
+            }
+        }
+        return bits << (first - y);
+    }
+
+    /**
+     * Checks whether a cell lies on the grid and has a passable edge.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return {@code true} if the cell is open
+     */
+    boolean isOpen(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        int id = x * height + y;
+        return (open[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Numbers the eight directions from 0 to 7.
+     *
+     * @param dx the step along the x axis, -1, 0 or 1
+     * @param dy the step along the y axis, -1, 0 or 1, not both 0
+     * @return the direction number
+     */
+    private static int direction(int dx, int dy) {
+        int index = (dx + 1) * 3 + (dy + 1);
+        return index > 4 ? index - 1 : index;
+    }
+}